@@ -14,13 +14,23 @@ public class AlphaError extends Exception {
         private static final String errorMsg = "Parsing error occurred.";
         private static final int maxWidth = 100;
 
+        /**
+         * Reports the position of the consumable and the start of its remaining sequence
+         * (only the first maxWidth chars are copied, not the whole sequence).
+         * @param consumable Consumable at the position of the error
+         */
         public ParsingException(Consumable consumable) {
-            this(StringUtils.abbreviate(consumable.getSequenceLeft().toString(), maxWidth));
+            this(where(consumable.position(), consumable.getSequenceLeft(maxWidth + 1)));
         }
 
         public ParsingException(String where) {
             super(errorMsg, where);
         }
+
+        private static String where(Consumable.Position position, String sequenceLeft) {
+            return "line " + position.line() + ", column " + position.column() + ": "
+                    + StringUtils.abbreviate(sequenceLeft, maxWidth);
+        }
     }
 
     public static class EmptyStackException extends AlphaError {
@@ -1,6 +1,7 @@
 package org.parser.alpha;
 
 import org.parser.Consumable;
+import org.parser.IgnoreProfile;
 import org.parser.base.Environment;
 import org.parser.base.Parser;
 import org.parser.base.build.Mode;
@@ -12,6 +13,12 @@ import org.parser.tree.AST;
 import java.util.Optional;
 
 public class AlphaNotationParser implements Parser<Type> {
+    /**
+     * Strings that are ignored in alpha programs (comments and horizontal spaces).
+     */
+    public static final IgnoreProfile ignoreProfile =
+            IgnoreProfile.of(Consumable.Ignore.IGNORE_COMMENT, Consumable.Ignore.IGNORE_H_SPACE);
+
     private final Parser<Type> alphaParser;
 
     public AlphaNotationParser() {
@@ -25,7 +32,7 @@ public class AlphaNotationParser implements Parser<Type> {
 
     @Override
     public Consumable consumableOf(CharSequence sequence) {
-        return new Consumable(sequence, Consumable.Ignore.IGNORE_COMMENT, Consumable.Ignore.IGNORE_H_SPACE);
+        return new Consumable(sequence, ignoreProfile);
     }
 
     public static String grammar = """
@@ -123,7 +123,7 @@ public class Program {
      * @return Returns a consumable object for the given string.
      */
     private static Consumable consumableOf(String program) {
-        return new Consumable(program, Consumable.Ignore.IGNORE_COMMENT, Consumable.Ignore.IGNORE_H_SPACE);
+        return new Consumable(program, AlphaNotationParser.ignoreProfile);
     }
 
 }
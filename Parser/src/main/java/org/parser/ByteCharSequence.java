@@ -0,0 +1,92 @@
+package org.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CharSequence view of UTF-8 bytes, where every byte is one char (the bytes are not decoded).
+ * ASCII bytes are their own char. The bytes 0x80 to 0xFF (the parts of multi-byte sequences) are mapped to
+ * the private use chars NON_ASCII_BASE + byte, so that no regex class like \s, \h or \w matches them.
+ * Only toString decodes the bytes (as UTF-8).
+ */
+final class ByteCharSequence implements CharSequence {
+    private static final char NON_ASCII_BASE = '\uF700';
+
+    private final ByteBuffer bytes;
+    /**
+     * Absolute index of the first byte in the buffer.
+     */
+    private final int offset;
+    private final int length;
+
+    ByteCharSequence(ByteBuffer bytes) {
+        this(bytes, bytes.position(), bytes.remaining());
+    }
+
+    private ByteCharSequence(ByteBuffer bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) throw new IndexOutOfBoundsException(index);
+        int b = bytes.get(offset + index) & 0xFF;
+        return b < 0x80 ? (char) b : (char) (NON_ASCII_BASE + b);
+    }
+
+    /**
+     * @return Returns a view of the given range (the bytes are not copied).
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || start > end || end > length) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+        }
+        return new ByteCharSequence(bytes, offset + start, end - start);
+    }
+
+    /**
+     * Decodes the bytes as UTF-8 (so the string can be shorter than the sequence).
+     * @return Returns the text of the bytes.
+     */
+    @Override
+    public String toString() {
+        if (bytes.hasArray()) {
+            return new String(bytes.array(), bytes.arrayOffset() + offset, length, StandardCharsets.UTF_8);
+        }
+        byte[] copy = new byte[length];
+        bytes.get(offset, copy);
+        return new String(copy, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Converts a string to the chars its UTF-8 bytes have in this view.
+     * @param text string
+     * @return Returns the chars of the UTF-8 bytes of the string (the string itself if it is ASCII).
+     */
+    static String encode(String text) {
+        if (isAscii(text)) return text;
+
+        byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+        char[] chars = new char[encoded.length];
+        for (int i = 0; i < encoded.length; i++) {
+            int b = encoded[i] & 0xFF;
+            chars[i] = b < 0x80 ? (char) b : (char) (NON_ASCII_BASE + b);
+        }
+        return new String(chars);
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+}
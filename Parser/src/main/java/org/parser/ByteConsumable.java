@@ -0,0 +1,113 @@
+package org.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Consumable that works directly on UTF-8 bytes, without decoding the input before parsing.
+ * Every byte is one position (see ByteCharSequence): Literals are compared byte by byte and patterns run on the
+ * bytes, where the bytes of non-ASCII chars match no regex class (like \s or \w) but do match . and negated
+ * classes like [^"]. So patterns should only contain ASCII chars (non-ASCII text can be matched with literals).
+ * Only the matched ranges are decoded (when the string of a match is needed).
+ * The indices of the matches and marks are byte offsets.
+ */
+public class ByteConsumable extends Consumable {
+    private final ByteCharSequence bytes;
+    /**
+     * Non-ASCII literals as chars of their UTF-8 bytes. The map is concurrent, since the record spliterators of a
+     * parallel stream search the separator on the same consumable (see Parser.parseRecords).
+     */
+    private final Map<String, String> encodedLiterals;
+
+    public ByteConsumable(byte[] bytes, Ignore ... toIgnores) {
+        this(ByteBuffer.wrap(bytes), toIgnores);
+    }
+
+    /**
+     * Creates a byte consumable of the remaining bytes of the buffer. The buffer must not change while parsing.
+     * @param buffer UTF-8 bytes
+     * @param toIgnores strings to be ignored
+     */
+    public ByteConsumable(ByteBuffer buffer, Ignore ... toIgnores) {
+        this(buffer, IgnoreProfile.of(toIgnores));
+    }
+
+    /**
+     * Creates a byte consumable of the remaining bytes of the buffer. The buffer must not change while parsing.
+     * @param buffer UTF-8 bytes
+     * @param ignoreProfile strings to be ignored
+     */
+    public ByteConsumable(ByteBuffer buffer, IgnoreProfile ignoreProfile) {
+        this(new ByteCharSequence(buffer), ignoreProfile);
+    }
+
+    private ByteConsumable(ByteCharSequence bytes, IgnoreProfile ignoreProfile) {
+        super(bytes, ignoreProfile);
+        this.bytes = bytes;
+        this.encodedLiterals = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Creates a byte consumable that reads the UTF-8 file at the given path through a memory mapping.
+     * @param path path of the file (at most 2 GB, since the indices are ints; split larger files into several
+     *             consumables)
+     * @param toIgnores strings to be ignored
+     * @return Returns a byte consumable for the file.
+     * @throws IOException if the file cannot be mapped
+     */
+    public static ByteConsumable ofFile(Path path, Ignore ... toIgnores) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new ByteConsumable(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), toIgnores);
+        }
+    }
+
+    /**
+     * Compares the UTF-8 bytes of the literal with the input. The matched string is the literal itself.
+     */
+    @Override
+    public Optional<Match> lookingAtLiteral(String literal) {
+        String encoded = encodedLiterals.computeIfAbsent(literal, ByteCharSequence::encode);
+        if (encoded.equals(literal)) return super.lookingAtLiteral(literal);
+        return super.lookingAtLiteral(encoded).map(match -> new Match(literal, match.start(), match.end()));
+    }
+
+    /**
+     * Searches the UTF-8 bytes of the literal (the indices are byte offsets).
+     */
+    @Override
+    public int indexOf(String literal, int from, int to) {
+        return super.indexOf(encodedLiterals.computeIfAbsent(literal, ByteCharSequence::encode), from, to);
+    }
+
+    /**
+     * @return Returns the number of UTF-8 bytes of the literal.
+     */
+    @Override
+    public int lengthOf(String literal) {
+        return encodedLiterals.computeIfAbsent(literal, ByteCharSequence::encode).length();
+    }
+
+    /**
+     * The slice is a byte consumable of the bytes of the range (the bytes are not copied).
+     */
+    @Override
+    public Consumable slice(int from, int to) {
+        return new ByteConsumable((ByteCharSequence) bytes.subSequence(from, to), ignoreProfile());
+    }
+
+    /**
+     *
+     * @return Returns the remaining bytes decoded as UTF-8.
+     */
+    @Override
+    public CharSequence getSequenceLeft() {
+        if (isEmptyWithoutIgnore()) return "";
+        return bytes.subSequence(index(), bytes.length()).toString();
+    }
+}
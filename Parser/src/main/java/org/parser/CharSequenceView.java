@@ -0,0 +1,36 @@
+package org.parser;
+
+/**
+ * View of a range of a CharSequence (the chars are not copied).
+ */
+record CharSequenceView(CharSequence sequence, int start, int end) implements CharSequence {
+    CharSequenceView {
+        if (start < 0 || start > end || end > sequence.length()) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end);
+        }
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length()) throw new IndexOutOfBoundsException(index);
+        return sequence.charAt(start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || start > end || end > length()) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end);
+        }
+        return new CharSequenceView(sequence, this.start + start, this.start + end);
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(length()).append(sequence, start, end).toString();
+    }
+}
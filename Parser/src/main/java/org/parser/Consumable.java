@@ -1,8 +1,15 @@
 package org.parser;
 
+import java.io.IOException;
 import java.nio.CharBuffer;
-import java.util.Objects;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -10,14 +17,114 @@ import java.util.regex.Pattern;
  * CharSequence that can be consumed.
  */
 public class Consumable {
+    private static final int IGNORE_CACHE_SIZE = 64;
     /**
-     * Represents a successful RegEx match in the CharSequence.
-     * @param matched string that matches the RegEx
+     * Represents a successful RegEx match in the CharSequence. The match stores the offsets of the matched
+     * string in the source sequence, the string itself is only created when matched() is called for the first time.
+     * Two matches are equal if their matched strings are equal.
      */
-    public record Match(String matched) {}
+    public static final class Match {
+        /**
+         * Sequence the string is taken from (null as soon as the string was created).
+         */
+        private CharSequence source;
+        private final int start;
+        private final int end;
+        private String matched;
+
+        /**
+         * Creates a match that has no position in a source sequence.
+         * @param matched string that matches the RegEx
+         */
+        public Match(String matched) {
+            this(matched, -1, -1);
+        }
+
+        /**
+         * @param matched string that matches the RegEx
+         * @param start index of the first char of the match in the source sequence
+         * @param end index after the last char of the match in the source sequence
+         */
+        public Match(String matched, int start, int end) {
+            this.source = null;
+            this.start = start;
+            this.end = end;
+            this.matched = matched;
+        }
+
+        private Match(CharSequence source, int start, int end) {
+            this.source = source;
+            this.start = start;
+            this.end = end;
+            this.matched = null;
+        }
+
+        /**
+         * Creates a match whose string is taken from the source sequence when it is needed (the source sequence
+         * must not change as long as the string was not created).
+         * @param source source sequence
+         * @param start index of the first char of the match
+         * @param end index after the last char of the match
+         * @return Returns a match of the range in the source sequence.
+         */
+        public static Match of(CharSequence source, int start, int end) {
+            return new Match(source, start, end);
+        }
+
+        /**
+         *
+         * @return Returns the string that matches the RegEx.
+         */
+        public String matched() {
+            if (matched == null) {
+                matched = source.subSequence(start, end).toString();
+                source = null;
+            }
+            return matched;
+        }
+
+        /**
+         *
+         * @return Returns the index of the first char of the match in the source sequence (-1 if unknown).
+         */
+        public int start() {
+            return start;
+        }
+
+        /**
+         *
+         * @return Returns the index after the last char of the match in the source sequence (-1 if unknown).
+         */
+        public int end() {
+            return end;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            return obj instanceof Match other && matched().equals(other.matched());
+        }
+
+        @Override
+        public int hashCode() {
+            return matched().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "Match[matched=" + matched() + "]";
+        }
+    }
 
     public record Mark(int index) {}
 
+    /**
+     * Position of an index in the sequence.
+     * @param line line number (starts at 1)
+     * @param column column in the line (starts at 1)
+     */
+    public record Position(int line, int column) {}
+
     /**
      * Flags that specify which strings to ignore.
      */
@@ -26,7 +133,8 @@ public class Consumable {
         IGNORE_V_SPACE("\\v"),
         IGNORE_WHITESPACE("\\s"),
         IGNORE_LINEBREAK("\\R"),
-        IGNORE_COMMENT("//.*"); // multiline: ((?s)/\*.*\*/)
+        IGNORE_COMMENT("//.*"),
+        IGNORE_BLOCK_COMMENT("/\\*(?s:.*?)\\*/");
 
         private final String value;
 
@@ -38,7 +146,7 @@ public class Consumable {
          *
          * @return Returns the Regular Expression to ignore.
          */
-        private String getValue() {
+        String getValue() {
             return value;
         }
     }
@@ -53,28 +161,58 @@ public class Consumable {
     private int startIndex;
 
     /**
-     * Stores a pattern that contains all regexes that should be ignored.
+     * Maximum number of patterns in the cache of the String overloads (lookingAt(String) and find(String)).
+     */
+    private static final int MAX_CACHED_PATTERNS = 1024;
+    private static final Map<String, Pattern> patterns = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the strings that should be ignored.
+     */
+    private final IgnoreProfile ignoreProfile;
+    /**
+     * Matchers of the patterns that were used on this consumable object (they are reused for every match).
+     */
+    private final Map<Pattern, Matcher> matchers;
+    /**
+     * Direct-mapped cache of the results of ignore(): ignoring at ignoredFrom[i] ends at ignoredTo[i],
+     * with i = ignoredFrom[i] % IGNORE_CACHE_SIZE. Backtracking returns to positions that were skipped before,
+     * so most calls of ignore() are answered by this cache.
      */
-    private WhatToIgnore whatToIgnore;
+    private final int[] ignoredFrom;
+    private final int[] ignoredTo;
+    /**
+     * The furthest offset up to which ignore() has already skipped (ignoring at this offset skips nothing).
+     */
+    private int ignoredUpTo;
+    /**
+     * Line index: lineStarts[i] is the index of the first char of line firstLine + i + 1 (only the lines up to
+     * linesIndexedUpTo are known). The index is built on demand when a position is requested. A streaming
+     * consumable forgets the lines before its window (see forgetLinesBefore), they are only counted in firstLine.
+     */
+    private int[] lineStarts;
+    private int numLines;
+    private int firstLine;
+    private int linesIndexedUpTo;
+    /**
+     * Matches of the terminals at the token starts (see Lexer.tokenize), null if the input is not tokenized.
+     */
+    private TokenTable tokens;
 
     /**
      * Creates a Consumable object with the passed CharSequence, where no strings are ignored.
      * @param buffer CharBuffer
      */
     public Consumable(CharBuffer buffer) {
-        this.buffer = buffer;
-        this.startIndex = 0;
-        this.whatToIgnore = new WhatToIgnore();
-        this.whatToIgnore.build();
+        this((CharSequence) buffer);
     }
 
     /**
      * Creates a Consumable object with the passed CharSequence, where no strings are ignored.
-     * The CharSequence is converted to a CharBuffer so that an invocation of subsequence does not allocate new memory.
      * @param sequence CharSequence
      */
     public Consumable(CharSequence sequence) {
-        this(CharBuffer.wrap(sequence));
+        this(sequence, new Ignore[0]);
     }
 
     /**
@@ -83,40 +221,90 @@ public class Consumable {
      * @param toIgnores strings to be ignored
      */
     public Consumable(CharBuffer buffer, Ignore ... toIgnores) {
-        this(buffer);
-        this.whatToIgnore = new WhatToIgnore(toIgnores);
-        this.whatToIgnore.build();
+        this((CharSequence) buffer, toIgnores);
     }
 
     /**
      * Creates a Consumable object with the passed CharSequence and the toIgnores as strings to be ignored.
-     * The CharSequence is converted to a CharBuffer so that an invocation of subsequence does not allocate new memory.
+     * The CharSequence is used as it is (matching works on regions of it, so it is never copied).
      * @param sequence CharSequence
      * @param toIgnores strings to be ignored
      */
     public Consumable(CharSequence sequence, Ignore ... toIgnores) {
-        this(CharBuffer.wrap(sequence), toIgnores);
+        this(sequence, IgnoreProfile.of(toIgnores));
+    }
+
+    /**
+     * Creates a Consumable object with the passed CharSequence that ignores the strings of the profile.
+     * @param sequence CharSequence
+     * @param ignoreProfile strings to be ignored
+     */
+    public Consumable(CharSequence sequence, IgnoreProfile ignoreProfile) {
+        this.buffer = sequence;
+        this.startIndex = 0;
+        this.ignoreProfile = ignoreProfile != null ? ignoreProfile : IgnoreProfile.NONE;
+        this.matchers = new IdentityHashMap<>();
+        this.ignoredFrom = new int[IGNORE_CACHE_SIZE];
+        this.ignoredTo = new int[IGNORE_CACHE_SIZE];
+        Arrays.fill(ignoredFrom, -1);
+        this.ignoredUpTo = -1;
+        this.lineStarts = new int[] {0};
+        this.numLines = 1;
+        this.firstLine = 0;
+        this.linesIndexedUpTo = 0;
+        this.tokens = null;
     }
 
     /**
      * Creates a Consumable object with the passed CharSequence, the toIgnores as strings to be ignored and
      * the comment string as a regular expression for a comment that should also be ignored.
-     * The CharSequence is converted to a CharBuffer so that an invocation of subsequence does not allocate new memory.
      * @param sequence CharSequence
      * @param commentRegEx Regular Expression, which represents a Comment
      * @param toIgnores strings to be ignored
      */
     public Consumable(CharSequence sequence, String commentRegEx, Ignore ... toIgnores) {
-        this(sequence);
-        this.whatToIgnore = new WhatToIgnore(toIgnores);
-        this.whatToIgnore.addIgnore(commentRegEx);
-        this.whatToIgnore.build();
+        this(sequence, IgnoreProfile.of(commentRegEx, toIgnores));
+    }
+
+    /**
+     * Creates a Consumable object that reads the file at the given path through a memory mapping.
+     * The file is decoded lazily while it is consumed (see MappedCharSequence), so the file is never loaded
+     * into the heap as a whole. The indices are ints, so the file can have at most Integer.MAX_VALUE chars.
+     * @param path path of the file
+     * @param charset charset of the file (US-ASCII, ISO-8859-1 or UTF-8)
+     * @param toIgnores strings to be ignored
+     * @return Returns a consumable object for the file.
+     * @throws IOException if the file cannot be mapped
+     */
+    public static Consumable ofFile(Path path, Charset charset, Ignore ... toIgnores) throws IOException {
+        return new Consumable(new MappedCharSequence(path, charset), toIgnores);
+    }
+
+    /**
+     * Creates a Consumable object that reads the UTF-8 file at the given path through a memory mapping.
+     * @param path path of the file
+     * @param toIgnores strings to be ignored
+     * @return Returns a consumable object for the file.
+     * @throws IOException if the file cannot be mapped
+     */
+    public static Consumable ofFile(Path path, Ignore ... toIgnores) throws IOException {
+        return ofFile(path, StandardCharsets.UTF_8, toIgnores);
     }
 
     public Consumable(Consumable other) {
         this.buffer = other.buffer;
         this.startIndex = other.startIndex;
-        this.whatToIgnore = other.whatToIgnore;
+        this.ignoreProfile = other.ignoreProfile;
+        this.matchers = new IdentityHashMap<>();
+        this.ignoredFrom = new int[IGNORE_CACHE_SIZE];
+        this.ignoredTo = new int[IGNORE_CACHE_SIZE];
+        Arrays.fill(ignoredFrom, -1);
+        this.ignoredUpTo = -1;
+        this.lineStarts = new int[] {0};
+        this.numLines = 1;
+        this.firstLine = 0;
+        this.linesIndexedUpTo = 0;
+        this.tokens = other.tokens;
     }
 
     /**
@@ -130,9 +318,8 @@ public class Consumable {
         if (isEmpty()) return Optional.empty();
 
         ignore();
-        Matcher matcher = genMatcher(pattern);
-        Optional<Match> res = genMatch(matcher.lookingAt(), matcher);
-        ignore();
+        Optional<Match> res = consume(pattern, false);
+        ignoreIfAvailable();
         return res;
     }
 
@@ -144,7 +331,66 @@ public class Consumable {
      * optional.empty() is returned
      */
     public Optional<Match> lookingAt(String regex) {
-        return lookingAt(Pattern.compile(regex));
+        return lookingAt(patternOf(regex));
+    }
+
+    /**
+     * Checks whether the sequence starts with the literal and if so, the literal is consumed.
+     * Does the same as lookingAt with a pattern that only matches the literal, but compares the chars directly.
+     * @param literal string to look for
+     * @return Returns the match object of the literal (with the literal as matched string) if the literal was found,
+     * otherwise optional.empty() is returned
+     */
+    public Optional<Match> lookingAtLiteral(String literal) {
+        if (isEmpty()) return Optional.empty();
+
+        ignore();
+        int start = startIndex;
+        Optional<Match> res = consumeLiteral(literal) ? Optional.of(new Match(literal, start, startIndex)) : Optional.empty();
+        ignoreIfAvailable();
+        return res;
+    }
+
+    /**
+     * Does the same as lookingAtLiteral (if the literal is not null) or lookingAt with the pattern. If the input
+     * is tokenized and the current position is a token start, the match is taken from the token table.
+     * Otherwise a pattern with a DFA is matched by the DFA.
+     * @param terminal id of the terminal
+     * @param pattern RegEx pattern of the terminal
+     * @param literal the literal the pattern matches or null if the pattern is not a plain literal
+     * @param dfa DFA of the pattern or null if the pattern has no DFA (see RegexDfa.compile)
+     * @return Returns the match object if the terminal matched, otherwise optional.empty() is returned
+     */
+    public Optional<Match> lookingAtTerminal(int terminal, Pattern pattern, String literal, RegexDfa dfa) {
+        if (tokens != null) {
+            if (isEmpty()) return Optional.empty();
+
+            int end = tokens.endOf(startIndex, terminal);
+            if (end == TokenTable.NO_MATCH) return Optional.empty();
+            if (end != TokenTable.UNKNOWN) {
+                int start = startIndex;
+                startIndex = end;
+                Match match = literal != null ? new Match(literal, start, end) : createMatch(start, end);
+                ignoreIfAvailable();
+                return Optional.of(match);
+            }
+        }
+        if (literal != null) return lookingAtLiteral(literal);
+        if (dfa == null) return lookingAt(pattern);
+        if (isEmpty()) return Optional.empty();
+
+        ignore();
+        Optional<Match> res = consume(dfa, pattern);
+        ignoreIfAvailable();
+        return res;
+    }
+
+    /**
+     * Sets the matches of the terminals at the token starts of the input (see Lexer.tokenize).
+     * @param tokens token table of the input (null to match all terminals with their patterns)
+     */
+    public void setTokens(TokenTable tokens) {
+        this.tokens = tokens;
     }
 
     /**
@@ -158,9 +404,8 @@ public class Consumable {
         if (isEmpty()) return Optional.empty();
 
         ignore();
-        Matcher matcher = genMatcher(pattern);
-        Optional<Match> res = genMatch(matcher.find(), matcher);
-        ignore();
+        Optional<Match> res = consume(pattern, true);
+        ignoreIfAvailable();
         return res;
     }
 
@@ -172,41 +417,172 @@ public class Consumable {
      * optional.empty() is returned
      */
     public Optional<Match> find(String regex) {
-        return find(Pattern.compile(regex));
+        return find(patternOf(regex));
+    }
+
+    /**
+     * Returns the compiled pattern of the regex. The patterns are cached, so a regex is compiled only once.
+     * @param regex RegEx string
+     * @return Returns the pattern of the regex.
+     */
+    private static Pattern patternOf(String regex) {
+        Pattern pattern = patterns.get(regex);
+        if (pattern == null) {
+            pattern = Pattern.compile(regex);
+            if (patterns.size() < MAX_CACHED_PATTERNS) patterns.putIfAbsent(regex, pattern);
+        }
+        return pattern;
     }
 
     /**
      * Attempts to match the toIgnore pattern and ignores the result.
+     * If only built-in flags are ignored, the IgnoreSkipper is used instead of the pattern.
      */
     private void ignore() {
-        Pattern pattern = whatToIgnore.toIgnore();
-        if (pattern != null) {
-            Matcher matcher = genMatcher(pattern);
-            genMatch(matcher.lookingAt(), matcher);
+        if (startIndex == ignoredUpTo) return;
+        int slot = startIndex & (IGNORE_CACHE_SIZE - 1);
+        if (ignoredFrom[slot] == startIndex) {
+            startIndex = ignoredTo[slot];
+            return;
+        }
+
+        int from = startIndex;
+        IgnoreSkipper skipper = ignoreProfile.skipper();
+        if (skipper != null) {
+            skip(skipper);
+        } else {
+            consume(ignoreProfile.toIgnore(), false);
+        }
+        rememberIgnored(from, startIndex);
+        rememberIgnored(startIndex, startIndex);
+        ignoredUpTo = Math.max(ignoredUpTo, startIndex);
+    }
+
+    /**
+     * Ignores the strings after a match. If the input that is needed for this was not pushed yet
+     * (see PushConsumable), the strings stay and are ignored before the next match instead.
+     */
+    private void ignoreIfAvailable() {
+        try {
+            ignore();
+        } catch (NeedMoreInputException e) {
+            // ignore() changes nothing before it needs more input
+        }
+    }
+
+    /**
+     * Skips the ignored strings with the skipper. If more input could change the result, more input is requested
+     * with fill() and the skipping starts again (like consume does with the pattern).
+     * @param skipper IgnoreSkipper
+     */
+    private void skip(IgnoreSkipper skipper) {
+        int end;
+        do {
+            end = skipper.skip(buffer, startIndex, buffer.length());
+        } while (skipper.couldSkipMore(buffer, end, buffer.length()) && fill());
+        startIndex = end;
+    }
+
+    private void rememberIgnored(int from, int to) {
+        int slot = from & (IGNORE_CACHE_SIZE - 1);
+        ignoredFrom[slot] = from;
+        ignoredTo[slot] = to;
+    }
+
+    /**
+     * Runs the pattern on the current sequence and consumes the match. If the matcher hit the end of the sequence,
+     * more input is requested with fill() and the pattern is run again (more input could change the result).
+     * @param pattern Pattern
+     * @param anywhere find the pattern anywhere (find) or just at the start (lookingAt)
+     * @return Returns the match object if the pattern matched, otherwise Optional.empty().
+     */
+    private Optional<Match> consume(Pattern pattern, boolean anywhere) {
+        Matcher matcher = genMatcher(pattern);
+        boolean success;
+        do {
+            matcher.region(startIndex, buffer.length());
+            success = anywhere ? matcher.find() : matcher.lookingAt();
+        } while (matcher.hitEnd() && fill());
+        return genMatch(success, matcher);
+    }
+
+    /**
+     * Runs the DFA on the current sequence and consumes the match (like consume with the pattern). If the DFA
+     * cannot match the sequence (see RegexDfa.UNSUPPORTED), the pattern is used.
+     * @param dfa DFA of the pattern
+     * @param pattern Pattern
+     * @return Returns the match object if the pattern matched, otherwise Optional.empty().
+     */
+    private Optional<Match> consume(RegexDfa dfa, Pattern pattern) {
+        int end;
+        while ((end = dfa.lookingAt(buffer, startIndex, buffer.length(), false)) == RegexDfa.HIT_END) {
+            if (!fill()) {
+                end = dfa.lookingAt(buffer, startIndex, buffer.length(), true);
+                break;
+            }
         }
+        if (end == RegexDfa.UNSUPPORTED) return consume(pattern, false);
+        if (end < 0) return Optional.empty();
+
+        int start = startIndex;
+        startIndex = end;
+        return Optional.of(createMatch(start, end));
     }
 
     /**
-     * Generates a match object based on the passed matcher.
+     * Compares the literal with the chars at the current index and consumes the literal if they are equal.
+     * @param literal string to compare
+     * @return Returns whether the literal was consumed.
+     */
+    private boolean consumeLiteral(String literal) {
+        int end = startIndex + literal.length();
+        while (buffer.length() < end) {
+            if (!fill()) return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (buffer.charAt(startIndex + i) != literal.charAt(i)) return false;
+        }
+        startIndex = end;
+        return true;
+    }
+
+    /**
+     * Generates a match object based on the passed matcher and consumes the sequence until the end of the match.
      * @param success success bit
      * @param matcher Matcher
      * @return Returns an Optional<Match> object.
      */
     private Optional<Match> genMatch(boolean success, Matcher matcher) {
         if (success) {
-            startIndex += matcher.end() - matcher.start();
-            return Optional.of(new Match(matcher.group()));
+            startIndex = matcher.end();
+            return Optional.of(createMatch(matcher.start(), matcher.end()));
         }
         return Optional.empty();
     }
 
     /**
-     * Generates a Matcher object based on the passed pattern and the current sequence.
+     * Creates the match object of the given range. The matched string is taken from the sequence when it is needed.
+     * @param start index of the first char of the match
+     * @param end index after the last char of the match
+     * @return Returns a match object.
+     */
+    protected Match createMatch(int start, int end) {
+        return Match.of(buffer, start, end);
+    }
+
+    /**
+     * Returns the Matcher of the passed pattern on the whole sequence (the matcher is created once per pattern).
+     * The matcher uses transparent bounds, so that lookaround constructs can see past the current region.
      * @param pattern Pattern
      * @return Returns a Matcher object
      */
     private Matcher genMatcher(Pattern pattern) {
-        return pattern.matcher(getSequenceLeft());
+        Matcher matcher = matchers.get(pattern);
+        if (matcher == null) {
+            matcher = pattern.matcher(buffer).useTransparentBounds(true);
+            matchers.put(pattern, matcher);
+        }
+        return matcher;
     }
 
     /**
@@ -215,15 +591,166 @@ public class Consumable {
      */
     public CharSequence getSequenceLeft() {
         if (isEmptyWithoutIgnore()) return "";
-        return buffer.subSequence(startIndex, buffer.length());
+        return CharBuffer.wrap(buffer, startIndex, buffer.length());
+    }
+
+    /**
+     * Copies at most maxLength chars of the current sequence (the rest of the sequence is not copied).
+     * @param maxLength maximum number of chars
+     * @return Returns the start of the current sequence.
+     */
+    public String getSequenceLeft(int maxLength) {
+        if (isEmptyWithoutIgnore()) return "";
+        int end = (int) Math.min((long) startIndex + maxLength, buffer.length());
+        return buffer.subSequence(startIndex, end).toString();
+    }
+
+    /**
+     * Returns the line and column of the index. A line ends with \n (so \r\n works as well).
+     * The line starts are indexed once up to the highest requested index and then found by a binary search.
+     * @param index index in the sequence
+     * @return Returns the position of the index.
+     * @throws IllegalStateException if the line of the index was already forgotten (see forgetLinesBefore)
+     */
+    public Position positionOf(int index) {
+        if (index < lineStarts[0]) {
+            throw new IllegalStateException("The lines before index " + lineStarts[0] + " were already released.");
+        }
+        indexLinesUpTo(index);
+        int line = Arrays.binarySearch(lineStarts, 0, numLines, index);
+        if (line < 0) line = -line - 2;
+        return new Position(firstLine + line + 1, index - lineStarts[line] + 1);
+    }
+
+    /**
+     *
+     * @param mark Mark
+     * @return Returns the line and column of the mark.
+     */
+    public Position positionOf(Mark mark) {
+        return positionOf(mark.index());
+    }
+
+    /**
+     *
+     * @return Returns the line and column of the current index.
+     */
+    public Position position() {
+        return positionOf(startIndex);
+    }
+
+    /**
+     * Records the start of every line that starts at or before the index.
+     * @param index index up to which the chars are scanned (exclusive)
+     */
+    void indexLinesUpTo(int index) {
+        int end = Math.min(index, buffer.length());
+        for (int i = linesIndexedUpTo; i < end; i++) {
+            if (buffer.charAt(i) == '\n') {
+                if (numLines == lineStarts.length) lineStarts = Arrays.copyOf(lineStarts, numLines * 2);
+                lineStarts[numLines++] = i + 1;
+            }
+        }
+        linesIndexedUpTo = Math.max(linesIndexedUpTo, end);
+    }
+
+    /**
+     * Indexes the lines up to the index and drops the line starts before the line of the index, so that the
+     * line index does not grow with the input that is no longer needed. Only the number of these lines is kept.
+     * @param index index of the first char whose position can still be requested
+     */
+    void forgetLinesBefore(int index) {
+        indexLinesUpTo(index);
+        int line = Arrays.binarySearch(lineStarts, 0, numLines, index);
+        if (line < 0) line = -line - 2;
+        if (line <= 0) return;
+        System.arraycopy(lineStarts, line, lineStarts, 0, numLines - line);
+        numLines -= line;
+        firstLine += line;
+    }
+
+    /**
+     * @return Returns the number of line starts in the line index.
+     */
+    int indexedLines() {
+        return numLines;
     }
 
     public Mark mark() {
         return new Mark(startIndex);
     }
 
+    /**
+     *
+     * @return Returns the current index (the same as mark().index() without creating a mark).
+     */
+    public int index() {
+        return startIndex;
+    }
+
     public void gotoMark(Mark mark) {
-        this.startIndex = mark.index;
+        gotoIndex(mark.index);
+    }
+
+    /**
+     * Goes to the index (like gotoMark with a mark of the index).
+     * @param index index that was returned by index() or mark().index()
+     */
+    public void gotoIndex(int index) {
+        this.startIndex = index;
+    }
+
+    /**
+     * Searches the literal between the indices without consuming anything (strings that are ignored are not
+     * skipped).
+     * @param literal string to look for
+     * @param from index at which the search starts
+     * @param to index at which the literal has to end at the latest
+     * @return Returns the index of the first occurrence of the literal or -1 if there is none.
+     */
+    public int indexOf(String literal, int from, int to) {
+        if (literal.isEmpty()) return from <= to ? from : -1;
+
+        char first = literal.charAt(0);
+        for (int i = from; i <= to - literal.length(); i++) {
+            if (buffer.charAt(i) != first) continue;
+
+            int j = 1;
+            while (j < literal.length() && buffer.charAt(i + j) == literal.charAt(j)) j++;
+            if (j == literal.length()) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @param literal string
+     * @return Returns the number of indices the literal takes in the sequence (see indexOf).
+     */
+    public int lengthOf(String literal) {
+        return literal.length();
+    }
+
+    /**
+     *
+     * @return Returns the index after the last char of the sequence.
+     */
+    public int endIndex() {
+        return buffer != null ? buffer.length() : 0;
+    }
+
+    /**
+     * Creates a consumable object of the range that ignores the same strings as this consumable object.
+     * The indices of the new consumable object start at 0.
+     * @param from index of the first char
+     * @param to index after the last char
+     * @return Returns a consumable object of the range.
+     */
+    public Consumable slice(int from, int to) {
+        return new Consumable(buffer.subSequence(from, to), ignoreProfile);
+    }
+
+    IgnoreProfile ignoreProfile() {
+        return ignoreProfile;
     }
 
     /**
@@ -244,10 +771,52 @@ public class Consumable {
         return isEmptyWithoutIgnore();
     }
 
+    /**
+     * Ignores the ignored strings and returns the next char without consuming it.
+     * @return Returns the next char or -1 if the sequence is empty.
+     */
+    public int nextChar() {
+        return nextChar(0);
+    }
+
+    /**
+     * Ignores the ignored strings and returns the char at the offset from the current position without
+     * consuming anything.
+     * @param offset offset from the current position (after the ignored strings)
+     * @return Returns the char or -1 if the sequence ends before.
+     */
+    public int nextChar(int offset) {
+        if (isEmpty()) return -1;
+        while (startIndex + offset >= buffer.length()) {
+            if (!fill()) return -1;
+        }
+        return buffer.charAt(startIndex + offset);
+    }
+
     public boolean isEmptyWithoutIgnore() {
-        return buffer == null || startIndex >= buffer.length();
+        if (buffer == null) return true;
+        while (startIndex >= buffer.length()) {
+            if (!fill()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads more input into the CharSequence. The default CharSequence is complete from the beginning, so
+     * nothing is read.
+     * @return Returns whether the CharSequence grew.
+     */
+    protected boolean fill() {
+        return false;
     }
 
+    /**
+     * Tells the consumable object that no one will go back to an index before the given index (with gotoMark).
+     * Consumable objects that read their input incrementally can then drop everything before this index.
+     * @param index index before which the input is no longer needed
+     */
+    public void releaseBefore(int index) {}
+
     /**
      *
      * @return Creates a string from the remaining CharSequence.
@@ -261,79 +830,11 @@ public class Consumable {
         if (this == obj) return true;
 
         if (obj instanceof Consumable other) {
-            return Objects.equals(this.getSequenceLeft(), other.getSequenceLeft());
+            return CharSequence.compare(this.getSequenceLeft(), other.getSequenceLeft()) == 0;
         } else if (obj instanceof CharSequence sequence) {
-            return Objects.equals(this.getSequenceLeft(), sequence);
+            return CharSequence.compare(this.getSequenceLeft(), sequence) == 0;
         }
 
         return false;
     }
-
-
-    /**
-     * Stores a pattern to be ignored as prefix
-     */
-    private static class WhatToIgnore {
-        /**
-         * Pattern that represents all strings to be ignored.
-         */
-        private Pattern toIgnore = null;
-        /**
-         * StringBuilder, which is used to build the pattern.
-         */
-        private StringBuilder toIgnoreBuilder;
-
-        public WhatToIgnore() {
-            toIgnoreBuilder = new StringBuilder().append("(");
-        }
-
-        /**
-         * Adds the passed ignores to the ignoring strings.
-         * @param flags to be ignored strings
-         */
-        public WhatToIgnore(Ignore ... flags) {
-            toIgnoreBuilder = new StringBuilder().append("(");
-            for (Ignore flag : flags) {
-                toIgnoreBuilder.append(flag.getValue()).append("|");
-            }
-        }
-
-        /**
-         * Adds a regex to the ignoring strings.
-         * @param regex Regular Expression
-         */
-        public void addIgnore(String regex) {
-            if (toIgnoreBuilder != null) toIgnoreBuilder.append(regex).append("|");
-        }
-
-        /**
-         * Adds a flag to the ignoring strings.
-         * @param flag to be ignored string
-         */
-        public void addIgnore(Ignore flag) {
-            if (toIgnoreBuilder != null) toIgnoreBuilder.append(flag.getValue()).append("|");
-        }
-
-        /**
-         * Builds a pattern from the ignoring strings.
-         */
-        public void build() {
-            if (toIgnoreBuilder.length() == 1) {
-                toIgnore = Pattern.compile("");
-            } else {
-                toIgnoreBuilder.setCharAt(toIgnoreBuilder.length() - 1, ')');
-                toIgnoreBuilder.append("*");
-                toIgnore = Pattern.compile(toIgnoreBuilder.toString());
-            }
-            toIgnoreBuilder = null;
-        }
-
-        /**
-         *
-         * @return Returns the generated pattern to be ignored (must be called after build()).
-         */
-        public Pattern toIgnore() {
-            return toIgnore;
-        }
-    }
 }
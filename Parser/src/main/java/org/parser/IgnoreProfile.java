@@ -0,0 +1,98 @@
+package org.parser;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable description of the strings a Consumable ignores. The pattern of a profile is compiled once and the
+ * profile can be shared by any number of Consumable objects (and threads).
+ * Profiles are cached, so IgnoreProfile.of returns the same profile for the same flags (and regex).
+ */
+public final class IgnoreProfile {
+    /**
+     * Maximum number of cached profiles (only reached if the custom regexes are not constant).
+     */
+    private static final int MAX_CACHED_PROFILES = 256;
+    private static final Map<Key, IgnoreProfile> profiles = new ConcurrentHashMap<>();
+
+    /**
+     * Profile that ignores nothing.
+     */
+    public static final IgnoreProfile NONE = of();
+
+    /**
+     * Pattern that represents all strings to be ignored.
+     */
+    private final Pattern toIgnore;
+    /**
+     * Skipper that replaces the pattern if only flags are ignored (null if a custom regex is ignored).
+     */
+    private final IgnoreSkipper skipper;
+
+    private IgnoreProfile(Key key) {
+        StringBuilder toIgnoreBuilder = new StringBuilder().append("(");
+        for (Consumable.Ignore flag : key.flags()) {
+            toIgnoreBuilder.append(flag.getValue()).append("|");
+        }
+        if (key.regex() != null) toIgnoreBuilder.append(key.regex()).append("|");
+
+        if (toIgnoreBuilder.length() == 1) {
+            this.toIgnore = Pattern.compile("");
+        } else {
+            toIgnoreBuilder.setCharAt(toIgnoreBuilder.length() - 1, ')');
+            toIgnoreBuilder.append("*");
+            this.toIgnore = Pattern.compile(toIgnoreBuilder.toString());
+        }
+        this.skipper = key.regex() == null ? new IgnoreSkipper(key.flags()) : null;
+    }
+
+    /**
+     * Returns the profile that ignores the strings of the flags.
+     * @param flags to be ignored strings
+     * @return Returns an ignore profile.
+     */
+    public static IgnoreProfile of(Consumable.Ignore ... flags) {
+        return of(null, flags);
+    }
+
+    /**
+     * Returns the profile that ignores the strings of the flags and the strings matching the regex.
+     * @param regex Regular Expression (e.g. for a comment; can be null)
+     * @param flags to be ignored strings
+     * @return Returns an ignore profile.
+     */
+    public static IgnoreProfile of(String regex, Consumable.Ignore ... flags) {
+        EnumSet<Consumable.Ignore> set = EnumSet.noneOf(Consumable.Ignore.class);
+        set.addAll(Arrays.asList(flags));
+        Key key = new Key(set, regex);
+
+        IgnoreProfile profile = profiles.get(key);
+        if (profile == null) {
+            profile = new IgnoreProfile(key);
+            if (profiles.size() < MAX_CACHED_PROFILES) profiles.putIfAbsent(key, profile);
+        }
+        return profile;
+    }
+
+    /**
+     *
+     * @return Returns the pattern that represents all strings to be ignored.
+     */
+    Pattern toIgnore() {
+        return toIgnore;
+    }
+
+    /**
+     *
+     * @return Returns the skipper for the flags or null if a custom regex is ignored.
+     */
+    IgnoreSkipper skipper() {
+        return skipper;
+    }
+
+    private record Key(Set<Consumable.Ignore> flags, String regex) {}
+}
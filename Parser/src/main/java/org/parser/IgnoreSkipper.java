@@ -0,0 +1,125 @@
+package org.parser;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Skips the strings of the built-in ignore flags (Consumable.Ignore) with a plain loop over the chars,
+ * without running a regular expression. Skipping ends at the same index as the regular expression of the flags
+ * (the alternation of the flag regexes repeated with *).
+ */
+final class IgnoreSkipper {
+    private final boolean hSpace;
+    private final boolean vSpace;
+    private final boolean whitespace;
+    private final boolean comment;
+    private final boolean blockComment;
+
+    IgnoreSkipper(Set<Consumable.Ignore> flags) {
+        EnumSet<Consumable.Ignore> set = flags.isEmpty() ? EnumSet.noneOf(Consumable.Ignore.class) : EnumSet.copyOf(flags);
+        this.hSpace = set.contains(Consumable.Ignore.IGNORE_H_SPACE);
+        // \R matches the same chars as \v (\r\n is just skipped in two steps).
+        this.vSpace = set.contains(Consumable.Ignore.IGNORE_V_SPACE) || set.contains(Consumable.Ignore.IGNORE_LINEBREAK);
+        this.whitespace = set.contains(Consumable.Ignore.IGNORE_WHITESPACE);
+        this.comment = set.contains(Consumable.Ignore.IGNORE_COMMENT);
+        this.blockComment = set.contains(Consumable.Ignore.IGNORE_BLOCK_COMMENT);
+    }
+
+    /**
+     * Skips all strings to be ignored.
+     * @param sequence CharSequence
+     * @param from index to start at
+     * @param to end of the sequence (exclusive)
+     * @return Returns the index of the first char that is not ignored (or to).
+     */
+    int skip(CharSequence sequence, int from, int to) {
+        int i = from;
+        while (i < to) {
+            char c = sequence.charAt(i);
+            if (isIgnoredChar(c)) {
+                i++;
+            } else if (c == '/' && i + 1 < to && (comment || blockComment)) {
+                char next = sequence.charAt(i + 1);
+                if (comment && next == '/') {
+                    i = skipLineComment(sequence, i + 2, to);
+                } else if (blockComment && next == '*') {
+                    int end = skipBlockComment(sequence, i + 2, to);
+                    if (end < 0) return i;
+                    i = end;
+                } else {
+                    return i;
+                }
+            } else {
+                return i;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Checks whether more input could let skip go further than the given index, where skipping stopped.
+     * This is the case at the end of the sequence, at a '/' that is the last char and at an unterminated block comment.
+     * @param sequence CharSequence
+     * @param index index where skipping stopped
+     * @param to end of the sequence (exclusive)
+     * @return Returns whether skipping could go on with more input.
+     */
+    boolean couldSkipMore(CharSequence sequence, int index, int to) {
+        if (index >= to) return true;
+        if (sequence.charAt(index) != '/') return false;
+        if (index + 1 == to) return comment || blockComment;
+        return blockComment && sequence.charAt(index + 1) == '*';
+    }
+
+    private boolean isIgnoredChar(char c) {
+        return (whitespace && isWhitespace(c)) || (hSpace && isHorizontalSpace(c)) || (vSpace && isVerticalSpace(c));
+    }
+
+    /**
+     * Skips to the next line terminator (like //.* where . does not match line terminators).
+     */
+    private static int skipLineComment(CharSequence sequence, int from, int to) {
+        int i = from;
+        while (i < to && !isLineTerminator(sequence.charAt(i))) i++;
+        return i;
+    }
+
+    /**
+     * @return Returns the index after the closing star-slash or -1 if the block comment is not closed.
+     */
+    private static int skipBlockComment(CharSequence sequence, int from, int to) {
+        for (int i = from; i + 1 < to; i++) {
+            if (sequence.charAt(i) == '*' && sequence.charAt(i + 1) == '/') return i + 2;
+        }
+        return -1;
+    }
+
+    /**
+     * @return Returns whether the char matches \s (without UNICODE_CHARACTER_CLASS).
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    /**
+     * @return Returns whether the char matches \h.
+     */
+    private static boolean isHorizontalSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\u00A0' || c == '\u1680' || c == '\u180E'
+                || (c >= '\u2000' && c <= '\u200A') || c == '\u202F' || c == '\u205F' || c == '\u3000';
+    }
+
+    /**
+     * @return Returns whether the char matches \v.
+     */
+    private static boolean isVerticalSpace(char c) {
+        return (c >= '\n' && c <= '\r') || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * @return Returns whether the char is a line terminator (a char that is not matched by .).
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
@@ -0,0 +1,285 @@
+package org.parser;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * CharSequence that is backed by a memory-mapped file.
+ * The file is never decoded as a whole: Single-byte charsets (US-ASCII, ISO-8859-1) are read directly
+ * from the mapped bytes and UTF-8 is decoded chunk by chunk on access. Only a few decoded chunks are kept
+ * on the heap, so the heap use does not depend on the size of the file.
+ */
+public class MappedCharSequence implements CharSequence {
+    /**
+     * Number of bytes per mapped segment (a single mapping is limited to 2 GB).
+     */
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    /**
+     * Number of chars per decoded chunk (UTF-8 only).
+     */
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    /**
+     * Number of decoded chunks that are cached at the same time.
+     */
+    private static final int CACHED_CHUNKS = 4;
+    private static final char REPLACEMENT = '\uFFFD';
+
+    private final MappedByteBuffer[] segments;
+    private final long byteLength;
+    /**
+     * True if every byte is one char (US-ASCII and ISO-8859-1).
+     */
+    private final boolean singleByte;
+    private final boolean asciiOnly;
+
+    /**
+     * Chunk index (UTF-8 only): the byte offset of the code point that contains the first char of each chunk.
+     * A chunk starts inside a code point if the first char of the chunk is the low surrogate of a pair.
+     */
+    private long[] chunkByteOffsets;
+    private boolean[] chunkStartsInside;
+    /**
+     * Number of chunks whose start is already known.
+     */
+    private int indexedChunks;
+    /**
+     * Position of the index scan (byte offset and char offset).
+     */
+    private long scanByte;
+    private long scanChar;
+    /**
+     * Length in chars (-1 as long as the file has not been scanned to the end).
+     */
+    private int length;
+
+    private final int[] cachedChunkIds;
+    private final char[][] cachedChunks;
+    private final int[] cachedChunkLengths;
+    private int nextCacheSlot;
+    private int lastSlot;
+    /**
+     * Length in bytes of the sequence decoded by the last call of decodeAt.
+     */
+    private int lastSequenceLength;
+
+    /**
+     * Maps the file at the given path into memory.
+     * @param path path of the file
+     * @param charset charset of the file (US-ASCII, ISO-8859-1 or UTF-8)
+     * @throws IOException if the file cannot be mapped
+     * @throws IllegalArgumentException if the charset is not supported
+     */
+    public MappedCharSequence(Path path, Charset charset) throws IOException {
+        this.singleByte = charset.equals(StandardCharsets.ISO_8859_1) || charset.equals(StandardCharsets.US_ASCII);
+        this.asciiOnly = charset.equals(StandardCharsets.US_ASCII);
+        if (!singleByte && !charset.equals(StandardCharsets.UTF_8)) {
+            throw new IllegalArgumentException("Unsupported charset for a mapped file: " + charset);
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            this.byteLength = channel.size();
+            int numSegments = (int) ((byteLength + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            this.segments = new MappedByteBuffer[numSegments];
+            for (int i = 0; i < numSegments; i++) {
+                long start = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_MASK + 1, byteLength - start));
+            }
+        }
+
+        if (singleByte && byteLength > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The file has more than Integer.MAX_VALUE chars: " + path);
+        }
+        this.length = singleByte ? (int) byteLength : -1;
+        this.chunkByteOffsets = new long[16];
+        this.chunkStartsInside = new boolean[16];
+        this.cachedChunkIds = new int[CACHED_CHUNKS];
+        this.cachedChunks = new char[CACHED_CHUNKS][];
+        this.cachedChunkLengths = new int[CACHED_CHUNKS];
+        Arrays.fill(cachedChunkIds, -1);
+    }
+
+    /**
+     * The first call scans the whole file (UTF-8 only) to count the chars. The bytes are only counted, not decoded.
+     * @return Returns the number of chars in the file.
+     */
+    @Override
+    public int length() {
+        if (length < 0) indexUpTo(Long.MAX_VALUE);
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0) throw new IndexOutOfBoundsException(index);
+        if (singleByte) {
+            if (index >= byteLength) throw new IndexOutOfBoundsException(index);
+            int b = byteAt(index) & 0xFF;
+            return asciiOnly && b >= 0x80 ? REPLACEMENT : (char) b;
+        }
+
+        int chunk = index >>> CHUNK_SHIFT;
+        int offset = index & (CHUNK_SIZE - 1);
+        int slot = slotOf(chunk);
+        if (offset >= cachedChunkLengths[slot]) throw new IndexOutOfBoundsException(index);
+        return cachedChunks[slot][offset];
+    }
+
+    /**
+     * @return Returns a view of the given range (the chars are not copied).
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new CharSequenceView(this, start, end);
+    }
+
+    /**
+     * Decodes the whole file into a string.
+     * @return Returns the content of the file.
+     */
+    @Override
+    public String toString() {
+        return new StringBuilder(length()).append(this).toString();
+    }
+
+    private byte byteAt(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK));
+    }
+
+    /**
+     * Returns the cache slot that contains the given chunk (decodes the chunk if it is not cached).
+     */
+    private int slotOf(int chunk) {
+        if (cachedChunkIds[lastSlot] == chunk) return lastSlot;
+        for (int i = 0; i < CACHED_CHUNKS; i++) {
+            if (cachedChunkIds[i] == chunk) return lastSlot = i;
+        }
+
+        int slot = nextCacheSlot;
+        nextCacheSlot = (nextCacheSlot + 1) % CACHED_CHUNKS;
+        if (cachedChunks[slot] == null) cachedChunks[slot] = new char[CHUNK_SIZE];
+        cachedChunkIds[slot] = chunk;
+        cachedChunkLengths[slot] = decodeChunk(chunk, cachedChunks[slot]);
+        return lastSlot = slot;
+    }
+
+    /**
+     * Decodes the given chunk into the target array.
+     * @return Returns the number of decoded chars.
+     */
+    private int decodeChunk(int chunk, char[] target) {
+        indexUpTo((long) chunk << CHUNK_SHIFT);
+        if (chunk >= indexedChunks) return 0;
+
+        long position = chunkByteOffsets[chunk];
+        int n = 0;
+        if (chunkStartsInside[chunk]) {
+            int codePoint = decodeAt(position);
+            target[n++] = Character.lowSurrogate(codePoint);
+            position += lastSequenceLength;
+        }
+        while (n < CHUNK_SIZE && position < byteLength) {
+            int codePoint = decodeAt(position);
+            position += lastSequenceLength;
+            if (Character.isBmpCodePoint(codePoint)) {
+                target[n++] = (char) codePoint;
+            } else {
+                target[n++] = Character.highSurrogate(codePoint);
+                if (n < CHUNK_SIZE) target[n++] = Character.lowSurrogate(codePoint);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Counts the chars of the file until the char with the given index is reached and records the start of
+     * every chunk on the way.
+     * @param charIndex index of the char to reach
+     */
+    private void indexUpTo(long charIndex) {
+        while (scanChar <= charIndex && scanByte < byteLength) {
+            if ((scanChar & (CHUNK_SIZE - 1)) == 0) recordChunk(scanByte, false);
+
+            int b = byteAt(scanByte);
+            if (b >= 0) {
+                scanByte++;
+                scanChar++;
+            } else {
+                int codePoint = decodeAt(scanByte);
+                scanByte += lastSequenceLength;
+                scanChar++;
+                if (!Character.isBmpCodePoint(codePoint)) {
+                    if ((scanChar & (CHUNK_SIZE - 1)) == 0) recordChunk(scanByte - lastSequenceLength, true);
+                    scanChar++;
+                }
+            }
+        }
+        if (scanByte >= byteLength && length < 0) {
+            if (scanChar > Integer.MAX_VALUE) {
+                throw new IllegalStateException("The file has more than Integer.MAX_VALUE chars.");
+            }
+            length = (int) scanChar;
+        }
+    }
+
+    private void recordChunk(long bytePosition, boolean startsInside) {
+        if (indexedChunks == chunkByteOffsets.length) {
+            chunkByteOffsets = Arrays.copyOf(chunkByteOffsets, indexedChunks * 2);
+            chunkStartsInside = Arrays.copyOf(chunkStartsInside, indexedChunks * 2);
+        }
+        chunkByteOffsets[indexedChunks] = bytePosition;
+        chunkStartsInside[indexedChunks] = startsInside;
+        indexedChunks++;
+    }
+
+    /**
+     * Decodes one UTF-8 sequence. Malformed bytes are decoded one by one as the replacement character.
+     * @param position byte offset of the sequence
+     * @return Returns the decoded code point (the length is stored in lastSequenceLength).
+     */
+    private int decodeAt(long position) {
+        int b0 = byteAt(position) & 0xFF;
+        lastSequenceLength = 1;
+        if (b0 < 0x80) return b0;
+
+        int needed;
+        int codePoint;
+        int min;
+        int max = 0xBF;
+        if (b0 >= 0xC2 && b0 <= 0xDF) {
+            needed = 1;
+            codePoint = b0 & 0x1F;
+            min = 0x80;
+        } else if (b0 >= 0xE0 && b0 <= 0xEF) {
+            needed = 2;
+            codePoint = b0 & 0x0F;
+            min = b0 == 0xE0 ? 0xA0 : 0x80;
+            if (b0 == 0xED) max = 0x9F;
+        } else if (b0 >= 0xF0 && b0 <= 0xF4) {
+            needed = 3;
+            codePoint = b0 & 0x07;
+            min = b0 == 0xF0 ? 0x90 : 0x80;
+            if (b0 == 0xF4) max = 0x8F;
+        } else {
+            return REPLACEMENT;
+        }
+
+        if (position + needed >= byteLength) return REPLACEMENT;
+        for (int i = 1; i <= needed; i++) {
+            int b = byteAt(position + i) & 0xFF;
+            if (b < min || b > max) return REPLACEMENT;
+            codePoint = (codePoint << 6) | (b & 0x3F);
+            min = 0x80;
+            max = 0xBF;
+        }
+        lastSequenceLength = needed + 1;
+        return codePoint;
+    }
+}
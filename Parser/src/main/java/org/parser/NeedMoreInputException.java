@@ -0,0 +1,13 @@
+package org.parser;
+
+/**
+ * Thrown by a PushConsumable if more input is needed that was not fed yet. The push parser catches it, suspends
+ * the parse and repeats the interrupted step after the next feed (so the exception never reaches the user).
+ */
+public final class NeedMoreInputException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    NeedMoreInputException() {
+        super("More input is needed.", null, false, false);
+    }
+}
@@ -0,0 +1,84 @@
+package org.parser;
+
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Streaming consumable whose input is pushed in chunks (e.g. the decoded chunks of a non-blocking channel)
+ * instead of being read from a reader. If the parse needs input that was not fed yet, a NeedMoreInputException
+ * is thrown, so the parse can be suspended until the next chunk arrives (see PushParser).
+ */
+public class PushConsumable extends StreamingConsumable {
+    private final Chunks chunks;
+
+    public PushConsumable(Ignore ... toIgnores) {
+        this(IgnoreProfile.of(toIgnores));
+    }
+
+    public PushConsumable(IgnoreProfile ignoreProfile) {
+        this(new Chunks(), ignoreProfile);
+    }
+
+    private PushConsumable(Chunks chunks, IgnoreProfile ignoreProfile) {
+        super(chunks, DEFAULT_CHUNK_SIZE, ignoreProfile);
+        this.chunks = chunks;
+    }
+
+    /**
+     * Appends the remaining chars of the chunk to the input (the chars are copied, so the chunk can be reused).
+     * @param chunk chars
+     */
+    public void feed(CharBuffer chunk) {
+        if (chunks.finished) throw new IllegalStateException("The input is already finished.");
+        if (chunk.hasRemaining()) chunks.queue.add(CharBuffer.allocate(chunk.remaining()).put(chunk).flip());
+    }
+
+    /**
+     * Appends the chars to the input.
+     * @param chunk chars
+     */
+    public void feed(CharSequence chunk) {
+        feed(CharBuffer.wrap(chunk));
+    }
+
+    /**
+     * Marks the end of the input (no more chunks will be fed).
+     */
+    public void finish() {
+        chunks.finished = true;
+    }
+
+    public boolean isFinished() {
+        return chunks.finished;
+    }
+
+    /**
+     * The fed chunks as a reader. If all chunks were read but the input is not finished, the reader throws
+     * a NeedMoreInputException.
+     */
+    private static class Chunks extends Reader {
+        private final ArrayDeque<CharBuffer> queue = new ArrayDeque<>();
+        private boolean finished = false;
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (length == 0) return 0;
+            while (!queue.isEmpty() && !queue.peek().hasRemaining()) queue.poll();
+            if (queue.isEmpty()) {
+                if (finished) return -1;
+                throw new NeedMoreInputException();
+            }
+
+            CharBuffer chunk = queue.peek();
+            int read = Math.min(length, chunk.remaining());
+            chunk.get(buffer, offset, read);
+            return read;
+        }
+
+        @Override
+        public void close() {
+            queue.clear();
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package org.parser;
+
+import org.parser.RegexSyntax.Chars;
+import org.parser.RegexSyntax.Choice;
+import org.parser.RegexSyntax.Node;
+import org.parser.RegexSyntax.Repeat;
+import org.parser.RegexSyntax.Sequence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * A regular expression compiled into a table-driven DFA. lookingAt runs in linear time, never backtracks and
+ * allocates nothing. The DFA finds the same match as java.util.regex (the first match in the order of the
+ * alternatives and the greedy or lazy quantifiers, not the longest one): its states are the ordered threads of
+ * a Thompson NFA and the threads after a thread that matched are dropped.
+ * Only the plain regular expressions of RegexSyntax are compiled. Everything else (e.g. anchors, lookarounds,
+ * back references or possessive quantifiers) is left to the Pattern.
+ */
+public final class RegexDfa {
+    /**
+     * lookingAt: the pattern does not match.
+     */
+    public static final int NO_MATCH = -1;
+    /**
+     * lookingAt: the match could change with more input.
+     */
+    public static final int HIT_END = -2;
+    /**
+     * lookingAt: the input contains a surrogate char (java.util.regex matches code points), the Pattern has to
+     * be used instead.
+     */
+    public static final int UNSUPPORTED = -3;
+
+    private static final int DEAD = -1;
+    /**
+     * Limits of the NFA and of the DFA (larger patterns are matched by the Pattern).
+     */
+    private static final int MAX_INSTRUCTIONS = 2000;
+    private static final int MAX_STATES = 512;
+
+    /**
+     * The chars are divided into classes of chars that no char set of the pattern distinguishes. The class of
+     * an ASCII char is looked up in asciiClasses, the class of any other char is found with classStarts.
+     */
+    private final int[] asciiClasses;
+    private final int[] classStarts;
+    private final int numClasses;
+    /**
+     * transitions[state * numClasses + class] is the next state (DEAD if no thread survives).
+     */
+    private final int[] transitions;
+    private final boolean[] accepting;
+    /**
+     * Whether a state has a transition to a state that is not DEAD.
+     */
+    private final boolean[] alive;
+
+    private RegexDfa(int[] classStarts, int[] transitions, boolean[] accepting, boolean[] alive) {
+        this.classStarts = classStarts;
+        this.numClasses = classStarts.length;
+        this.asciiClasses = new int[128];
+        for (int c = 0; c < 128; c++) {
+            asciiClasses[c] = classOf(classStarts, c);
+        }
+        this.transitions = transitions;
+        this.accepting = accepting;
+        this.alive = alive;
+    }
+
+    /**
+     * @param pattern Pattern
+     * @return Returns the DFA of the pattern or null if the pattern cannot be compiled.
+     */
+    public static RegexDfa compile(Pattern pattern) {
+        Node node = RegexSyntax.parse(pattern);
+        if (node == null) return null;
+        try {
+            var program = new Program();
+            program.emit(node);
+            program.add(Program.MATCH, 0, 0);
+            return program.toDfa();
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Matches the pattern at the start of the range.
+     * @param sequence CharSequence
+     * @param from index of the first char
+     * @param to index after the last char
+     * @param complete whether the sequence ends at to (otherwise HIT_END is returned if the match could change
+     *                 with the chars after to)
+     * @return Returns the end of the match, NO_MATCH, HIT_END or UNSUPPORTED.
+     */
+    public int lookingAt(CharSequence sequence, int from, int to, boolean complete) {
+        int state = 0;
+        int end = accepting[0] ? from : NO_MATCH;
+        for (int i = from; i < to; i++) {
+            if (!alive[state]) return end;
+            char c = sequence.charAt(i);
+            if (Character.isSurrogate(c)) return UNSUPPORTED;
+            state = transitions[state * numClasses + (c < 128 ? asciiClasses[c] : classOf(classStarts, c))];
+            if (state == DEAD) return end;
+            if (accepting[state]) end = i + 1;
+        }
+        return complete || !alive[state] ? end : HIT_END;
+    }
+
+    /**
+     * @return Returns the number of states of the DFA.
+     */
+    public int size() {
+        return accepting.length;
+    }
+
+    private static int classOf(int[] classStarts, int c) {
+        int index = Arrays.binarySearch(classStarts, c);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Thompson NFA of the syntax tree. A SPLIT prefers its first target, so the order of the threads is the order
+     * in which java.util.regex tries the paths.
+     */
+    private static final class Program {
+        private static final int CHARS = 0;
+        private static final int SPLIT = 1;
+        private static final int JUMP = 2;
+        private static final int MATCH = 3;
+
+        private final List<int[]> instructions = new ArrayList<>();
+        private final List<Chars> charSets = new ArrayList<>();
+
+        private int add(int op, int first, int second) {
+            if (instructions.size() == MAX_INSTRUCTIONS) throw new UnsupportedOperationException();
+            instructions.add(new int[] {op, first, second});
+            return instructions.size() - 1;
+        }
+
+        private int next() {
+            return instructions.size();
+        }
+
+        private void emit(Node node) {
+            if (node instanceof Chars chars) {
+                add(CHARS, charSets.size(), 0);
+                charSets.add(chars);
+            } else if (node instanceof Sequence sequence) {
+                sequence.nodes().forEach(this::emit);
+            } else if (node instanceof Choice choice) {
+                List<Integer> jumps = new ArrayList<>();
+                var alternatives = choice.alternatives();
+                for (int i = 0; i < alternatives.size() - 1; i++) {
+                    int split = add(SPLIT, 0, 0);
+                    instructions.get(split)[1] = next();
+                    emit(alternatives.get(i));
+                    jumps.add(add(JUMP, 0, 0));
+                    instructions.get(split)[2] = next();
+                }
+                emit(alternatives.get(alternatives.size() - 1));
+                jumps.forEach(jump -> instructions.get(jump)[1] = next());
+            } else {
+                emitRepeat((Repeat) node);
+            }
+        }
+
+        private void emitRepeat(Repeat repeat) {
+            // java.util.regex stops the iterations of a loop at an empty match, the threads of the DFA do not
+            if (repeat.max() != repeat.min() && repeat.node().nullable()) throw new UnsupportedOperationException();
+            for (int i = 0; i < repeat.min(); i++) {
+                emit(repeat.node());
+            }
+            if (repeat.max() < 0) {
+                int split = add(SPLIT, 0, 0);
+                emit(repeat.node());
+                add(JUMP, split, 0);
+                setTargets(split, split + 1, next(), repeat.greedy());
+                return;
+            }
+            List<Integer> splits = new ArrayList<>();
+            for (int i = repeat.min(); i < repeat.max(); i++) {
+                splits.add(add(SPLIT, 0, 0));
+                emit(repeat.node());
+            }
+            int end = next();
+            splits.forEach(split -> setTargets(split, split + 1, end, repeat.greedy()));
+        }
+
+        private void setTargets(int split, int body, int exit, boolean greedy) {
+            instructions.get(split)[1] = greedy ? body : exit;
+            instructions.get(split)[2] = greedy ? exit : body;
+        }
+
+        /**
+         * Subset construction over the ordered thread lists (the threads that reach CHARS instructions).
+         */
+        private RegexDfa toDfa() {
+            TreeSet<Integer> boundaries = new TreeSet<>(List.of(0));
+            for (Chars chars : charSets) {
+                for (int i = 0; i < chars.ranges().length; i += 2) {
+                    boundaries.add(chars.ranges()[i]);
+                    if (chars.ranges()[i + 1] < Character.MAX_VALUE) boundaries.add(chars.ranges()[i + 1] + 1);
+                }
+            }
+            int[] classStarts = boundaries.stream().mapToInt(Integer::intValue).toArray();
+
+            Map<List<Integer>, Integer> stateIds = new HashMap<>();
+            List<List<Integer>> states = new ArrayList<>();
+            List<Boolean> accepting = new ArrayList<>();
+            List<int[]> rows = new ArrayList<>();
+
+            var closure = new Closure();
+            closure.add(0);
+            stateIds.put(closure.key(), 0);
+            states.add(closure.threads);
+            accepting.add(closure.matched);
+
+            for (int state = 0; state < states.size(); state++) {
+                int[] row = new int[classStarts.length];
+                for (int k = 0; k < classStarts.length; k++) {
+                    int c = classStarts[k];
+                    closure = new Closure();
+                    for (int pc : states.get(state)) {
+                        if (charSets.get(instructions.get(pc)[1]).contains(c)) closure.add(pc + 1);
+                    }
+                    if (closure.threads.isEmpty() && !closure.matched) {
+                        row[k] = DEAD;
+                        continue;
+                    }
+                    List<Integer> key = closure.key();
+                    Integer next = stateIds.get(key);
+                    if (next == null) {
+                        if (states.size() == MAX_STATES) throw new UnsupportedOperationException();
+                        next = states.size();
+                        stateIds.put(key, next);
+                        states.add(closure.threads);
+                        accepting.add(closure.matched);
+                    }
+                    row[k] = next;
+                }
+                rows.add(row);
+            }
+
+            int[] transitions = new int[states.size() * classStarts.length];
+            boolean[] acceptingStates = new boolean[states.size()];
+            boolean[] alive = new boolean[states.size()];
+            for (int state = 0; state < states.size(); state++) {
+                System.arraycopy(rows.get(state), 0, transitions, state * classStarts.length, classStarts.length);
+                acceptingStates[state] = accepting.get(state);
+                alive[state] = Arrays.stream(rows.get(state)).anyMatch(next -> next != DEAD);
+            }
+            return new RegexDfa(classStarts, transitions, acceptingStates, alive);
+        }
+
+        /**
+         * Epsilon closure that keeps the order of the threads. The threads after a MATCH have a lower priority
+         * than the match, so they are dropped.
+         */
+        private final class Closure {
+            private final List<Integer> threads = new ArrayList<>();
+            private final boolean[] visited = new boolean[instructions.size()];
+            private boolean matched = false;
+
+            private void add(int pc) {
+                if (matched || visited[pc]) return;
+                visited[pc] = true;
+                int[] instruction = instructions.get(pc);
+                switch (instruction[0]) {
+                    case CHARS -> threads.add(pc);
+                    case SPLIT -> {
+                        add(instruction[1]);
+                        add(instruction[2]);
+                    }
+                    case JUMP -> add(instruction[1]);
+                    default -> matched = true;
+                }
+            }
+
+            /**
+             * @return Returns the threads and whether they matched (the key of the state of the closure).
+             */
+            private List<Integer> key() {
+                List<Integer> key = new ArrayList<>(threads);
+                key.add(matched ? -1 : -2);
+                return key;
+            }
+        }
+    }
+}
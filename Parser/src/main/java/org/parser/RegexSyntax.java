@@ -0,0 +1,290 @@
+package org.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Syntax trees of plain regular expressions: chars, classes, . and escapes like \\d, groups, alternatives and
+ * greedy or lazy quantifiers without flags. The syntax tree means the same as the Pattern (e.g. . does not match
+ * line terminators). It is the front-end of RegexDfa and of the first sets of regex-parsers (FirstSet.ofRegex).
+ */
+public final class RegexSyntax {
+    /**
+     * Chars that . does not match (the line terminators of java.util.regex).
+     */
+    private static final int[] LINE_TERMINATORS = {'\n', '\n', '\r', '\r', 0x85, 0x85, 0x2028, 0x2029};
+
+    private RegexSyntax() {}
+
+    /**
+     * @param pattern Pattern
+     * @return Returns the syntax tree of the pattern or null if the pattern is not a plain regular expression
+     * (or uses a construct that is not understood, e.g. anchors, lookarounds, back references or flags).
+     */
+    public static Node parse(Pattern pattern) {
+        if (pattern.flags() != 0) return null;
+        try {
+            var parser = new Parser(pattern.pattern());
+            Node node = parser.alternatives();
+            return parser.atEnd() ? node : null;
+        } catch (UnsupportedOperationException | IndexOutOfBoundsException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Node of the syntax tree of a regular expression.
+     */
+    public sealed interface Node permits Chars, Sequence, Choice, Repeat {
+        /**
+         * @return Returns whether the node can match the empty string.
+         */
+        boolean nullable();
+    }
+
+    /**
+     * Set of chars, stored as sorted disjoint ranges (from, to inclusive).
+     */
+    public record Chars(int[] ranges) implements Node {
+        public static Chars of(int from, int to) {
+            return new Chars(new int[] {from, to});
+        }
+
+        public Chars union(Chars other) {
+            int[] all = Arrays.copyOf(ranges, ranges.length + other.ranges.length);
+            System.arraycopy(other.ranges, 0, all, ranges.length, other.ranges.length);
+            Integer[] order = new Integer[all.length / 2];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> Integer.compare(all[2 * a], all[2 * b]));
+
+            List<Integer> merged = new ArrayList<>();
+            for (int i : order) {
+                int from = all[2 * i];
+                int to = all[2 * i + 1];
+                int last = merged.size() - 1;
+                if (last > 0 && from <= merged.get(last) + 1) {
+                    merged.set(last, Math.max(merged.get(last), to));
+                } else {
+                    merged.add(from);
+                    merged.add(to);
+                }
+            }
+            return new Chars(merged.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        public Chars complement() {
+            List<Integer> result = new ArrayList<>();
+            int next = 0;
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (ranges[i] > next) {
+                    result.add(next);
+                    result.add(ranges[i] - 1);
+                }
+                next = ranges[i + 1] + 1;
+            }
+            if (next <= Character.MAX_VALUE) {
+                result.add(next);
+                result.add((int) Character.MAX_VALUE);
+            }
+            return new Chars(result.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        public boolean contains(int c) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (c < ranges[i]) return false;
+                if (c <= ranges[i + 1]) return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean nullable() {
+            return false;
+        }
+    }
+
+    public record Sequence(List<Node> nodes) implements Node {
+        @Override
+        public boolean nullable() {
+            return nodes.stream().allMatch(Node::nullable);
+        }
+    }
+
+    public record Choice(List<Node> alternatives) implements Node {
+        @Override
+        public boolean nullable() {
+            return alternatives.stream().anyMatch(Node::nullable);
+        }
+    }
+
+    /**
+     * @param max maximum number of repetitions (-1 if unbounded)
+     */
+    public record Repeat(Node node, int min, int max, boolean greedy) implements Node {
+        @Override
+        public boolean nullable() {
+            return min == 0 || node.nullable();
+        }
+    }
+
+    /**
+     * Recursive descent over a regular expression that creates its syntax tree. Constructs that are not supported
+     * throw an UnsupportedOperationException.
+     */
+    private static final class Parser {
+        private final String regex;
+        private int pos;
+
+        private Parser(String regex) {
+            this.regex = regex;
+            this.pos = 0;
+        }
+
+        private boolean atEnd() {
+            return pos == regex.length();
+        }
+
+        private Node alternatives() {
+            List<Node> alternatives = new ArrayList<>(List.of(sequence()));
+            while (!atEnd() && regex.charAt(pos) == '|') {
+                pos++;
+                alternatives.add(sequence());
+            }
+            return alternatives.size() == 1 ? alternatives.get(0) : new Choice(alternatives);
+        }
+
+        private Node sequence() {
+            List<Node> nodes = new ArrayList<>();
+            while (!atEnd() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')') {
+                nodes.add(quantified(element()));
+            }
+            return nodes.size() == 1 ? nodes.get(0) : new Sequence(nodes);
+        }
+
+        private Node quantified(Node element) {
+            if (atEnd()) return element;
+            int min;
+            int max;
+            switch (regex.charAt(pos)) {
+                case '?' -> { min = 0; max = 1; }
+                case '*' -> { min = 0; max = -1; }
+                case '+' -> { min = 1; max = -1; }
+                case '{' -> {
+                    int close = regex.indexOf('}', pos);
+                    if (close < 0) throw new UnsupportedOperationException();
+                    String bounds = regex.substring(pos + 1, close);
+                    int comma = bounds.indexOf(',');
+                    min = Integer.parseInt(comma < 0 ? bounds : bounds.substring(0, comma));
+                    max = comma < 0 ? min : comma == bounds.length() - 1 ? -1 : Integer.parseInt(bounds.substring(comma + 1));
+                    pos = close;
+                }
+                default -> { return element; }
+            }
+            pos++;
+
+            boolean greedy = true;
+            if (!atEnd() && regex.charAt(pos) == '?') {
+                greedy = false;
+                pos++;
+            } else if (!atEnd() && regex.charAt(pos) == '+') {
+                throw new UnsupportedOperationException();
+            }
+            return quantified(new Repeat(element, min, max, greedy));
+        }
+
+        private Node element() {
+            char c = regex.charAt(pos++);
+            return switch (c) {
+                case '(' -> group();
+                case '[' -> charClass();
+                case '\\' -> escape();
+                case '.' -> new Chars(LINE_TERMINATORS).complement();
+                case '^', '$', '*', '+', '?', '{', ']', '}' -> throw new UnsupportedOperationException();
+                default -> Chars.of(c, c);
+            };
+        }
+
+        private Node group() {
+            if (regex.charAt(pos) == '?') {
+                if (regex.charAt(pos + 1) == ':') {
+                    pos += 2;
+                } else if (regex.charAt(pos + 1) == '<' && Character.isLetter(regex.charAt(pos + 2))) {
+                    pos = regex.indexOf('>', pos) + 1;
+                } else {
+                    throw new UnsupportedOperationException();
+                }
+            }
+            Node node = alternatives();
+            if (regex.charAt(pos++) != ')') throw new UnsupportedOperationException();
+            return node;
+        }
+
+        private Chars charClass() {
+            boolean negated = regex.charAt(pos) == '^';
+            if (negated) pos++;
+            if (regex.charAt(pos) == ']') throw new UnsupportedOperationException();
+            Chars result = null;
+            while (regex.charAt(pos) != ']') {
+                char c = regex.charAt(pos++);
+                if (c == '[' || (c == '&' && regex.charAt(pos) == '&')) throw new UnsupportedOperationException();
+                Chars item = c == '\\' ? escape() : Chars.of(c, c);
+                if (regex.charAt(pos) == '-' && regex.charAt(pos + 1) != ']') {
+                    int from = singleChar(item);
+                    pos++;
+                    char next = regex.charAt(pos++);
+                    if (next == '[') throw new UnsupportedOperationException();
+                    int to = singleChar(next == '\\' ? escape() : Chars.of(next, next));
+                    if (to < from) throw new UnsupportedOperationException();
+                    item = Chars.of(from, to);
+                }
+                result = result == null ? item : result.union(item);
+            }
+            pos++;
+            return negated ? result.complement() : result;
+        }
+
+        /**
+         * @return Returns the char of a range bound (a class like \\d is no range bound).
+         */
+        private static int singleChar(Chars chars) {
+            if (chars.ranges().length != 2 || chars.ranges()[0] != chars.ranges()[1]) {
+                throw new UnsupportedOperationException();
+            }
+            return chars.ranges()[0];
+        }
+
+        private Chars escape() {
+            char c = regex.charAt(pos++);
+            return switch (c) {
+                case 'd' -> digits();
+                case 'D' -> digits().complement();
+                case 'w' -> word();
+                case 'W' -> word().complement();
+                case 's' -> space();
+                case 'S' -> space().complement();
+                case 't' -> Chars.of('\t', '\t');
+                case 'n' -> Chars.of('\n', '\n');
+                case 'r' -> Chars.of('\r', '\r');
+                case 'f' -> Chars.of('\f', '\f');
+                default -> {
+                    if (c >= 128 || Character.isLetterOrDigit(c)) throw new UnsupportedOperationException();
+                    yield Chars.of(c, c);
+                }
+            };
+        }
+
+        private static Chars digits() {
+            return Chars.of('0', '9');
+        }
+
+        private static Chars word() {
+            return new Chars(new int[] {'0', '9', 'A', 'Z', '_', '_', 'a', 'z'});
+        }
+
+        private static Chars space() {
+            return new Chars(new int[] {'\t', '\r', ' ', ' '});
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package org.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Consumable that reads its input incrementally from a Reader (or a ReadableByteChannel).
+ * The input is kept in a growable ring buffer (the window). Everything before the index passed to
+ * releaseBefore (the parse engine does this as soon as it cannot backtrack any more) is dropped from the window,
+ * so the memory use depends on the backtracking depth and not on the size of the input.
+ * Indices (and marks) stay absolute, but gotoMark must not go back before the released index.
+ */
+public class StreamingConsumable extends Consumable {
+    static final int DEFAULT_CHUNK_SIZE = 8192;
+    /**
+     * Number of chars that are kept before the released index, since patterns like \b or lookbehinds
+     * look at the chars before the current position.
+     */
+    private static final int LOOKBEHIND = 16;
+
+    private final Reader reader;
+    private final Window window;
+    /**
+     * Number of chars that are read at once.
+     */
+    private final int chunkSize;
+    /**
+     * Index before which the input is no longer needed.
+     */
+    private int released;
+    private boolean endOfInput;
+
+    public StreamingConsumable(Reader reader, Ignore ... toIgnores) {
+        this(reader, DEFAULT_CHUNK_SIZE, toIgnores);
+    }
+
+    public StreamingConsumable(Reader reader, int chunkSize, Ignore ... toIgnores) {
+        this(reader, chunkSize, IgnoreProfile.of(toIgnores));
+    }
+
+    public StreamingConsumable(Reader reader, int chunkSize, IgnoreProfile ignoreProfile) {
+        this(reader, chunkSize, new Window(chunkSize), ignoreProfile);
+    }
+
+    /**
+     * Creates a streaming consumable object that decodes the bytes of the channel with the given charset.
+     * @param channel channel to read from
+     * @param charset charset of the bytes
+     * @param toIgnores strings to be ignored
+     */
+    public StreamingConsumable(ReadableByteChannel channel, Charset charset, Ignore ... toIgnores) {
+        this(Channels.newReader(channel, charset.newDecoder(), -1), toIgnores);
+    }
+
+    private StreamingConsumable(Reader reader, int chunkSize, Window window, IgnoreProfile ignoreProfile) {
+        super(window, ignoreProfile);
+        this.reader = reader;
+        this.window = window;
+        this.chunkSize = chunkSize;
+        this.released = 0;
+        this.endOfInput = false;
+    }
+
+    /**
+     * Reads the next chunk from the reader. Before that, the released prefix is dropped from the window
+     * so that the window only grows if the retained input does not fit. Only the number of lines of the dropped
+     * prefix is kept (positionOf works for the input in the window), so the line index stays as small as the window.
+     * @return Returns whether the window grew.
+     */
+    @Override
+    protected boolean fill() {
+        if (endOfInput) return false;
+
+        int discardBefore = Math.min(released, index()) - LOOKBEHIND;
+        if (discardBefore > window.base()) {
+            forgetLinesBefore(discardBefore);
+            window.discardBefore(discardBefore);
+        }
+        try {
+            int read = window.readFrom(reader, chunkSize);
+            if (read < 0) {
+                endOfInput = true;
+                reader.close();
+                return false;
+            }
+            return read > 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The matched string is created immediately, since the window may drop the range later.
+     */
+    @Override
+    protected Match createMatch(int start, int end) {
+        return new Match(window.subSequence(start, end).toString(), start, end);
+    }
+
+    @Override
+    public void releaseBefore(int index) {
+        released = Math.max(released, index);
+    }
+
+    @Override
+    public void gotoIndex(int index) {
+        if (index < window.base()) {
+            throw new IllegalStateException("The input before index " + window.base() + " was already released.");
+        }
+        super.gotoIndex(index);
+    }
+
+    /**
+     * The end of a stream is only known after the whole stream was read, which a streaming consumable avoids.
+     */
+    @Override
+    public int endIndex() {
+        throw new UnsupportedOperationException("The end of a streaming consumable is not known in advance.");
+    }
+
+    /**
+     *
+     * @return Returns the number of chars the window can hold without growing.
+     */
+    public int capacity() {
+        return window.capacity();
+    }
+
+    /**
+     *
+     * @return Returns the index of the first char that is still in the window.
+     */
+    public int windowStart() {
+        return window.base();
+    }
+
+    /**
+     * Ring buffer that holds the input from the absolute index base (inclusive) to end (exclusive).
+     * As a CharSequence it is indexed absolutely and its length is the end.
+     */
+    private static class Window implements CharSequence {
+        private char[] data;
+        /**
+         * Array index of the char with the absolute index base.
+         */
+        private int head;
+        private int base;
+        private int end;
+
+        Window(int minCapacity) {
+            this.data = new char[Integer.highestOneBit(Math.max(minCapacity, 16) - 1) << 1];
+            this.head = 0;
+            this.base = 0;
+            this.end = 0;
+        }
+
+        int base() {
+            return base;
+        }
+
+        int capacity() {
+            return data.length;
+        }
+
+        void discardBefore(int index) {
+            if (index <= base) return;
+            index = Math.min(index, end);
+            head = (head + index - base) & (data.length - 1);
+            base = index;
+        }
+
+        /**
+         * Reads at most max chars from the reader into the window (the window grows if there is not enough space).
+         * @return Returns the number of chars read or -1 at the end of the input.
+         */
+        int readFrom(Reader reader, int max) throws IOException {
+            if (data.length - (end - base) < max) grow(end - base + max);
+
+            int tail = (head + end - base) & (data.length - 1);
+            int free = data.length - (end - base);
+            int contiguous = Math.min(Math.min(max, free), data.length - tail);
+            int read = reader.read(data, tail, contiguous);
+            if (read > 0) {
+                if (end + read < 0) throw new IllegalStateException("The input has more than Integer.MAX_VALUE chars.");
+                end += read;
+            }
+            return read;
+        }
+
+        private void grow(int minCapacity) {
+            char[] grown = new char[Integer.highestOneBit(minCapacity - 1) << 1];
+            int size = end - base;
+            int first = Math.min(size, data.length - head);
+            System.arraycopy(data, head, grown, 0, first);
+            System.arraycopy(data, 0, grown, first, size - first);
+            data = grown;
+            head = 0;
+        }
+
+        @Override
+        public int length() {
+            return end;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < base || index >= end) throw new IndexOutOfBoundsException(index);
+            return data[(head + index - base) & (data.length - 1)];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new CharSequenceView(this, start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new StringBuilder(end - base).append(this, base, end).toString();
+        }
+    }
+}
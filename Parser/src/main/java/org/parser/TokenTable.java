@@ -0,0 +1,135 @@
+package org.parser;
+
+import java.util.Arrays;
+
+/**
+ * The matches of the terminals of a grammar at the token starts of an input (created by Lexer.tokenize).
+ * For every token start the table stores which patterns match there and where their matches end. A terminal
+ * that is parsed at a token start is answered by the table instead of the regex engine. At all other positions
+ * (e.g. after the "<" of "<=" or inside a token of a context-dependent terminal) the terminal is matched as usual.
+ * Tokens are stored in parallel int and long arrays (start, accepted patterns, offset of the ends).
+ */
+public final class TokenTable {
+    /**
+     * endOf: the table does not know the position or the terminal.
+     */
+    static final int UNKNOWN = -2;
+    /**
+     * endOf: the terminal does not match at the position.
+     */
+    static final int NO_MATCH = -1;
+
+    /**
+     * Id of the first terminal of the table.
+     */
+    private final int firstTerminal;
+    /**
+     * patternOf[id - firstTerminal] is the index of the pattern of the terminal with the id (-1 if the terminal
+     * is not part of the table). Terminals with the same pattern share the pattern index.
+     */
+    private final int[] patternOf;
+    /**
+     * Number of longs of the bitset of the accepted patterns of a token.
+     */
+    private final int words;
+
+    private int size;
+    private int[] starts;
+    private long[] accepts;
+    /**
+     * endOffsets[token] is the index of the end of the first accepted pattern of the token in ends.
+     */
+    private int[] endOffsets;
+    private int[] ends;
+    private int numEnds;
+    /**
+     * The token that was found last (the parser mostly asks for the same or the next token).
+     */
+    private int last;
+
+    /**
+     * @param firstTerminal id of the first terminal
+     * @param patternOf pattern indices of the terminals (see patternOf)
+     * @param numPatterns number of patterns
+     */
+    public TokenTable(int firstTerminal, int[] patternOf, int numPatterns) {
+        this.firstTerminal = firstTerminal;
+        this.patternOf = patternOf.clone();
+        this.words = Math.max(1, (numPatterns + Long.SIZE - 1) / Long.SIZE);
+        this.size = 0;
+        this.starts = new int[16];
+        this.accepts = new long[16 * words];
+        this.endOffsets = new int[16];
+        this.ends = new int[16];
+        this.numEnds = 0;
+        this.last = 0;
+    }
+
+    /**
+     * Adds the token at the start (the tokens have to be added in the order of their starts).
+     * @param start index of the token start
+     * @param patternEnds patternEnds[p] is the end of the match of pattern p at the start (-1 if it does not match)
+     */
+    public void add(int start, int[] patternEnds) {
+        if (size > 0 && start <= starts[size - 1]) throw new IllegalArgumentException("Tokens have to be added in order.");
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            accepts = Arrays.copyOf(accepts, size * 2 * words);
+            endOffsets = Arrays.copyOf(endOffsets, size * 2);
+        }
+
+        starts[size] = start;
+        endOffsets[size] = numEnds;
+        for (int p = 0; p < patternEnds.length; p++) {
+            if (patternEnds[p] < 0) continue;
+            accepts[size * words + (p >>> 6)] |= 1L << p;
+            if (numEnds == ends.length) ends = Arrays.copyOf(ends, numEnds * 2);
+            ends[numEnds++] = patternEnds[p];
+        }
+        size++;
+    }
+
+    /**
+     * @return Returns the number of tokens.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param position index after the ignored strings
+     * @param terminal id of the terminal
+     * @return Returns the end of the match of the terminal at the position, NO_MATCH if it does not match there
+     * or UNKNOWN if the position is no token start or the terminal is not part of the table.
+     */
+    int endOf(int position, int terminal) {
+        int t = terminal - firstTerminal;
+        if (t < 0 || t >= patternOf.length || patternOf[t] < 0) return UNKNOWN;
+        int token = tokenAt(position);
+        if (token < 0) return UNKNOWN;
+
+        int pattern = patternOf[t];
+        int base = token * words;
+        long word = accepts[base + (pattern >>> 6)];
+        if ((word & (1L << pattern)) == 0) return NO_MATCH;
+
+        int rank = Long.bitCount(word & ((1L << pattern) - 1));
+        for (int w = 0; w < pattern >>> 6; w++) {
+            rank += Long.bitCount(accepts[base + w]);
+        }
+        return ends[endOffsets[token] + rank];
+    }
+
+    /**
+     * @return Returns the token that starts at the position or -1 if no token starts there.
+     */
+    private int tokenAt(int position) {
+        if (last < size && starts[last] == position) return last;
+        if (last + 1 < size && starts[last + 1] == position) return ++last;
+
+        int token = Arrays.binarySearch(starts, 0, size, position);
+        if (token < 0) return -1;
+        last = token;
+        return token;
+    }
+}
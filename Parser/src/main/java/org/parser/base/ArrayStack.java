@@ -0,0 +1,59 @@
+package org.parser.base;
+
+import java.util.Arrays;
+
+/**
+ * Growable stack backed by an array. Unlike java.util.Stack it is not synchronized, since an environment
+ * (and with it its stacks) is only used by one thread.
+ * @param <T> type of the elements
+ */
+final class ArrayStack<T> {
+    /**
+     * A cleared stack keeps its array if the array is not larger than this.
+     */
+    private static final int MAX_RETAINED_CAPACITY = 1 << 12;
+
+    private Object[] elements;
+    private int size;
+
+    ArrayStack(int initialCapacity) {
+        this.elements = new Object[Math.max(initialCapacity, 1)];
+        this.size = 0;
+    }
+
+    void push(T element) {
+        if (size == elements.length) elements = Arrays.copyOf(elements, size * 2);
+        elements[size++] = element;
+    }
+
+    @SuppressWarnings("unchecked")
+    T pop() {
+        if (size == 0) throw new IllegalStateException("The stack is empty.");
+        T element = (T) elements[--size];
+        elements[size] = null;
+        return element;
+    }
+
+    @SuppressWarnings("unchecked")
+    T peek() {
+        if (size == 0) throw new IllegalStateException("The stack is empty.");
+        return (T) elements[size - 1];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Removes all elements. The array is kept for the next use (unless it grew very large).
+     */
+    void clear() {
+        if (elements.length > MAX_RETAINED_CAPACITY) elements = new Object[MAX_RETAINED_CAPACITY];
+        else Arrays.fill(elements, 0, size, null);
+        size = 0;
+    }
+}
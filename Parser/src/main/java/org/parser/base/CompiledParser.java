@@ -0,0 +1,85 @@
+package org.parser.base;
+
+import org.parser.Consumable;
+import org.parser.tree.AST;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A parser whose parser graph was compiled into an instruction program (see ParserPool.compile). It creates the
+ * same ASTs as the parser it was compiled from.
+ * @param <TYPE> type of the AST
+ */
+public final class CompiledParser<TYPE> implements Parser<TYPE> {
+    private final ParserProgram<TYPE> program;
+    private final int entry;
+    private final boolean canFail;
+    private final int depthHint;
+
+    private CompiledParser(ParserProgram<TYPE> program, int entry, Parser<TYPE> parser) {
+        this.program = program;
+        this.entry = entry;
+        this.canFail = parser.canFail();
+        this.depthHint = parser.depthHint();
+    }
+
+    /**
+     * Compiles the parsers into one program (the rules reachable from several parsers are compiled once).
+     * @param parsers Map with names of parsers as key and the parser as value
+     * @return Returns a map with the compiled parsers by name.
+     */
+    public static <TYPE> Map<String, Parser<TYPE>> compile(Map<String, Parser<TYPE>> parsers) {
+        List<String> names = new ArrayList<>(parsers.keySet());
+        List<Parser<TYPE>> roots = names.stream().map(parsers::get).toList();
+        int[] entries = new int[roots.size()];
+        ParserProgram<TYPE> program = ParserProgram.compile(roots, entries);
+
+        Map<String, Parser<TYPE>> compiled = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            compiled.put(names.get(i), new CompiledParser<>(program, entries[i], roots.get(i)));
+        }
+        return compiled;
+    }
+
+    /**
+     * Compiles a single parser.
+     * @param parser Parser
+     * @return Returns the compiled parser.
+     */
+    public static <TYPE> CompiledParser<TYPE> compile(Parser<TYPE> parser) {
+        int[] entries = new int[1];
+        ParserProgram<TYPE> program = ParserProgram.compile(List.of(parser), entries);
+        return new CompiledParser<>(program, entries[0], parser);
+    }
+
+    /**
+     * Runs the program (used if the compiled parser is part of a parser graph that is not compiled).
+     * Since the surrounding parse may still go back, the input is not released.
+     */
+    @Override
+    public void processWith(Environment<TYPE> environment) {
+        environment.executeAndThenCall(null, (consumable) -> {
+            AST<TYPE> ast = program.run(entry, consumable, depthHint, MemoPolicy.FULL, false).orElse(null);
+            environment.resultStack().push(ast != null ? ast : Environment.failure());
+        });
+    }
+
+    @Override
+    public Optional<AST<TYPE>> parse(Consumable consumable, MemoPolicy memoPolicy) {
+        return program.run(entry, consumable, depthHint, memoPolicy, true);
+    }
+
+    @Override
+    public boolean canFail() {
+        return canFail;
+    }
+
+    @Override
+    public int depthHint() {
+        return depthHint;
+    }
+}
@@ -4,8 +4,8 @@ import org.parser.Consumable;
 import org.parser.tree.AST;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
 import java.util.function.Function;
 
 /**
@@ -15,50 +15,76 @@ import java.util.function.Function;
  */
 public class ConcatParser<TYPE> implements WithSubparsers<TYPE> {
     private static final String errorMsg = "Fail at Concat: Internal error. Should not happen.";
+    /**
+     * Mark of a concat-parser that does not pin its mark (because no subparser can fail).
+     */
+    private static final int NO_MARK = -1;
     /**
      * set of parsers to be added one after the other (order is important)
      */
-    private final List<Parser<TYPE>> parsers;
+    private List<Parser<TYPE>> parsers;
     /**
      * This function is called when all parsers in the parser list have returned a successful AST
      * have been delivered. The list of supplied ASTs (without the ignored ASTs) is then passed to this method.
      *. This method should then eventually return the resulting AST.
      */
     private Function<List<AST<TYPE>>, AST<TYPE>> atSuccess;
+    /**
+     * Index of the last subparser that can fail (-1 if no subparser can fail).
+     */
+    private int lastFallibleIndex;
+    private boolean frozen;
 
     public ConcatParser(Function<List<AST<TYPE>>, AST<TYPE>> atSuccess) {
         this.atSuccess = atSuccess != null ? atSuccess : Parser.basicConcatAtSuccess(null);
         this.parsers = new ArrayList<>();
+        this.lastFallibleIndex = -1;
+        this.frozen = false;
     }
 
     public ConcatParser(Function<List<AST<TYPE>>, AST<TYPE>> atSuccess,
                         List<Parser<TYPE>> parsers) {
         this(atSuccess);
-        if (parsers != null) this.parsers.addAll(parsers);
+        if (parsers != null) parsers.forEach(this::addSubparser);
     }
 
     public void setAtSuccess(Function<List<AST<TYPE>>, AST<TYPE>> atSuccess) {
+        requireNotFrozen();
         this.atSuccess = atSuccess;
     }
 
+    Function<List<AST<TYPE>>, AST<TYPE>> atSuccess() {
+        return atSuccess;
+    }
+
     @Override
     public void processWith(Environment<TYPE> environment) {
-        processParsersRec(environment, 0, environment.createConsumableMark());
+        processParsersRec(environment, 0, lastFallibleIndex >= 0 ? environment.pinConsumableMark() : NO_MARK);
     }
 
-    private void processParsersRec(Environment<TYPE> environment, int index, Consumable.Mark mark) {
+    /**
+     * The mark is only pinned as long as a subparser can still fail. After the last subparser that can fail,
+     * the mark is released, since the concat-parser cannot go back to it anymore.
+     */
+    private void processParsersRec(Environment<TYPE> environment, int index, int mark) {
+        if (mark != NO_MARK && index == lastFallibleIndex + 1) {
+            environment.releaseConsumableMark();
+            mark = NO_MARK;
+        }
+
         if (index == parsers.size()) {
             aggregateResults(environment);
         } else {
+            int pinnedMark = mark;
             var parser = parsers.get(index);
             environment.executeAndThenCall(parser, (consumable) -> {
                 assert !environment.resultStack().isEmpty() : errorMsg;
 
-                if (environment.resultStack().peek().isPresent()) {
-                    processParsersRec(environment, index + 1, mark);
+                if (!Environment.isFailure(environment.resultStack().peek())) {
+                    processParsersRec(environment, index + 1, pinnedMark);
                 } else {
-                    clearWhenFailed(environment, index, consumable, mark);
-                    environment.resultStack().push(Optional.empty());
+                    clearWhenFailed(environment, index, consumable, pinnedMark);
+                    environment.resultStack().push(Environment.failure());
                 }
             });
         }
@@ -66,26 +92,54 @@ public class ConcatParser<TYPE> implements WithSubparsers<TYPE> {
 
     private void aggregateResults(Environment<TYPE> environment) {
         ArrayList<AST<TYPE>> ASTs = new ArrayList<>(parsers.size());
+        int start = -1;
+        int end = -1;
         for (int i = 0; i < parsers.size(); i++) {
-            var optionalAST = environment.resultStack().pop();
-            assert optionalAST.isPresent() : errorMsg;
+            var ast = environment.resultStack().pop();
+            assert !Environment.isFailure(ast) : errorMsg;
 
-            var ast = optionalAST.get();
+            if (ast.hasSpan()) {
+                if (end < 0) end = ast.getEnd();
+                start = ast.getStart();
+            }
             if (!ast.shouldIgnore()) ASTs.add(0, ast);
         }
-        environment.resultStack().push(Optional.of(atSuccess.apply(ASTs)));
+        AST<TYPE> result = atSuccess.apply(ASTs);
+        environment.resultStack().push(result != null ? environment.withSpan(result, start, end) : Environment.failure());
     }
 
-    private void clearWhenFailed(Environment<TYPE> environment, int failIndex, Consumable consumable, Consumable.Mark mark) {
+    private void clearWhenFailed(Environment<TYPE> environment, int failIndex, Consumable consumable, int mark) {
         for (int i = 0; i < failIndex + 1; i++) {
             environment.resultStack().pop();
         }
-        consumable.gotoMark(mark);
+        consumable.gotoIndex(mark);
+        environment.releaseConsumableMark();
     }
 
     @Override
     public void addSubparser(Parser<TYPE> subparser) {
-        if (subparser != null) parsers.add(subparser);
+        requireNotFrozen();
+        if (subparser != null) {
+            parsers.add(subparser);
+            if (subparser.canFail()) lastFallibleIndex = parsers.size() - 1;
+        }
+    }
+
+    @Override
+    public List<Parser<TYPE>> subparsers() {
+        return Collections.unmodifiableList(parsers);
+    }
+
+    @Override
+    public void freeze() {
+        if (!frozen) {
+            parsers = List.copyOf(parsers);
+            frozen = true;
+        }
+    }
+
+    private void requireNotFrozen() {
+        if (frozen) throw new IllegalStateException("The concat-parser is frozen.");
     }
 
     @Override
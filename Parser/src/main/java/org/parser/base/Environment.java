@@ -1,64 +1,371 @@
 package org.parser.base;
 
 import org.parser.Consumable;
-import org.parser.Pair;
+import org.parser.NeedMoreInputException;
 import org.parser.tree.AST;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.Optional;
-import java.util.Stack;
 import java.util.function.Consumer;
 
 public class Environment<TYPE> {
-    private final Stack<Optional<AST<TYPE>>> resultStack;
-    private final Stack<Consumer<Consumable>> callbackStack;
-    private final Stack<Parser<TYPE>> parserStack;
-    private final Consumable consumable;
-    private final Map<Pair<Consumable.Mark, String>, Pair<Consumable.Mark, Optional<AST<TYPE>>>> cache;
+    /**
+     * Memo entries before the compaction point are removed when the compaction point moved by this many chars.
+     */
+    static final int CACHE_EVICTION_INTERVAL = 1 << 16;
+    /**
+     * Initial size of the stacks if the parser has no depth hint.
+     */
+    static final int DEFAULT_DEPTH_HINT = 64;
+    /**
+     * Result that a parser pushes onto the result stack if it failed.
+     */
+    private static final AST<?> FAILURE = new AST<>(null);
+
+    /**
+     * The results of the parsers (FAILURE if a parser failed).
+     */
+    private final ArrayStack<AST<TYPE>> resultStack;
+    private final ArrayStack<Consumer<Consumable>> callbackStack;
+    private final ArrayStack<Parser<TYPE>> parserStack;
+    private Consumable consumable;
+    private final MemoTables<TYPE> cache;
+    /**
+     * Indices of the marks that a parser may still go back to (pinned marks). The marks are pinned and released
+     * in LIFO order, so the first pinned mark has the smallest index.
+     */
+    private int[] pinnedMarks;
+    private int numPinnedMarks;
+    /**
+     * All memo entries before this index were removed.
+     */
+    private int evictedBefore;
+    /**
+     * Whether the consumable is told to release the input before the compaction point (false if this environment
+     * runs inside another parse, which may still go back).
+     */
+    private final boolean releaseInput;
+    /**
+     * Profiler that records the memo hits (null if the parse is not a training parse).
+     */
+    private MemoProfiler<TYPE> profiler;
+    /**
+     * Grown results of the rules of left-recursive cycles (created by the first left-recursive rule). The results
+     * are kept regardless of the memo policies, since a growing rule needs its seed.
+     * An end of -1 marks a result that has to be evaluated again.
+     */
+    private MemoTable<TYPE> grownResults;
+    /**
+     * Start index and rule id of each rule that is growing (pairs in the order of the start of the growing).
+     */
+    private int[] growing;
+    private int numGrowing;
 
     public Environment(Consumable consumable) {
-        this.resultStack = new Stack<>();
-        this.callbackStack = new Stack<>();
-        this.parserStack = new Stack<>();
+        this(consumable, DEFAULT_DEPTH_HINT);
+    }
+
+    public Environment(Consumable consumable, int depthHint) {
+        this(consumable, depthHint, MemoPolicy.FULL);
+    }
+
+    /**
+     * Creates an environment whose stacks initially have space for depthHint elements (they grow if needed).
+     * @param consumable Consumable
+     * @param depthHint expected depth of the stacks (see Parser.depthHint())
+     * @param memoPolicy memo policy of the rules without a policy of their own
+     */
+    public Environment(Consumable consumable, int depthHint, MemoPolicy memoPolicy) {
+        this(consumable, depthHint, memoPolicy, true);
+    }
+
+    Environment(Consumable consumable, int depthHint, MemoPolicy memoPolicy, boolean releaseInput) {
+        this.resultStack = new ArrayStack<>(depthHint);
+        this.callbackStack = new ArrayStack<>(depthHint);
+        this.parserStack = new ArrayStack<>(depthHint);
+        this.consumable = consumable;
+        this.cache = new MemoTables<>(memoPolicy);
+        this.pinnedMarks = new int[16];
+        this.numPinnedMarks = 0;
+        this.evictedBefore = 0;
+        this.releaseInput = releaseInput;
+        this.profiler = null;
+        this.grownResults = null;
+        this.growing = null;
+        this.numGrowing = 0;
+    }
+
+    /**
+     * Prepares the environment for a new parse of the consumable. The stacks and the memo tables are cleared
+     * but keep their arrays, so a reused environment does not allocate them again.
+     * @param consumable Consumable of the next parse
+     * @param memoPolicy memo policy of the rules without a policy of their own (null if the policy does not change)
+     */
+    void reset(Consumable consumable, MemoPolicy memoPolicy) {
+        resultStack.clear();
+        callbackStack.clear();
+        parserStack.clear();
+        cache.reset(memoPolicy);
         this.consumable = consumable;
-        this.cache = new HashMap<>();
+        this.numPinnedMarks = 0;
+        this.evictedBefore = 0;
+        this.profiler = null;
+        if (grownResults != null) grownResults.clear();
+        this.numGrowing = 0;
     }
 
-    Stack<Optional<AST<TYPE>>> resultStack() {
+    /**
+     * Records the memo hits of the parse with the profiler. While profiling, all rules use the memo policy of
+     * the parse.
+     */
+    void profileWith(MemoProfiler<TYPE> profiler) {
+        this.profiler = profiler;
+    }
+
+    ArrayStack<AST<TYPE>> resultStack() {
         return resultStack;
     }
 
+    /**
+     *
+     * @return Returns the result that signals a failed parser.
+     */
+    @SuppressWarnings("unchecked")
+    static <TYPE> AST<TYPE> failure() {
+        return (AST<TYPE>) FAILURE;
+    }
+
+    /**
+     *
+     * @param result result of a parser
+     * @return Returns whether the result signals a failed parser (null also counts as a failure).
+     */
+    static boolean isFailure(AST<?> result) {
+        return result == FAILURE || result == null;
+    }
+
     void executeAndThenCall(Parser<TYPE> parser, Consumer<Consumable> callback) {
         callbackStack.push(callback);
         parserStack.push(parser);
     }
 
-    Consumable.Mark createConsumableMark() {
-        return consumable.mark();
+    /**
+     *
+     * @return Returns the current index of the consumable.
+     */
+    int createConsumableMark() {
+        return consumable.index();
+    }
+
+    /**
+     * @return Returns the next char of the consumable after the ignored strings (-1 at the end).
+     */
+    int nextChar() {
+        return consumable.nextChar();
     }
 
-    void putToCache(Consumable.Mark startMark, String name, Optional<AST<TYPE>> optionalAST) {
-        Consumable.Mark endMark = consumable.mark();
-        cache.put(new Pair<>(startMark, name), new Pair<>(endMark, optionalAST));
+    /**
+     * Sets the index of the consumable to the mark.
+     */
+    void gotoConsumableMark(int mark) {
+        consumable.gotoIndex(mark);
     }
 
-    boolean hasInCache(Consumable.Mark startMark, String name) {
-        return cache.containsKey(new Pair<>(startMark, name));
+    /**
+     * Creates a mark the calling parser may go back to. The mark must be released with releaseConsumableMark
+     * as soon as the parser cannot go back to it anymore.
+     * @return Returns the current index of the consumable.
+     */
+    int pinConsumableMark() {
+        int mark = consumable.index();
+        if (numPinnedMarks == pinnedMarks.length) pinnedMarks = Arrays.copyOf(pinnedMarks, numPinnedMarks * 2);
+        pinnedMarks[numPinnedMarks++] = mark;
+        return mark;
     }
 
-    Optional<AST<TYPE>> getFromCache(Consumable.Mark startMark, String name) {
-        Pair<Consumable.Mark, String> key = new Pair<>(startMark, name);
-        Pair<Consumable.Mark, Optional<AST<TYPE>>> cachedValue = cache.get(key);
+    /**
+     * Releases the mark that was pinned last. If no pinned mark is left, the consumable is told that the input
+     * before the current position is no longer needed.
+     */
+    void releaseConsumableMark() {
+        assert numPinnedMarks > 0 : "Release without a pinned mark.";
+        numPinnedMarks--;
+        if (numPinnedMarks == 0) compact();
+    }
 
-        if (cachedValue != null) {
-            var endMark = cachedValue.x();
-            var optionalAST = cachedValue.y();
-            consumable.gotoMark(endMark);
-            return optionalAST;
+    /**
+     * No parser can go back before the compaction point: Every pinned mark and every memo entry that can still
+     * be used is at or after this index.
+     * @return Returns the index before which the input is no longer needed.
+     */
+    public int compactionPoint() {
+        return numPinnedMarks > 0 ? pinnedMarks[0] : consumable.index();
+    }
+
+    /**
+     * Releases the input before the compaction point and removes the memo entries before it
+     * (a memo entry is only looked up at the current position, which never goes back before the compaction point).
+     */
+    private void compact() {
+        int point = compactionPoint();
+        if (releaseInput) consumable.releaseBefore(point);
+        if (point - evictedBefore >= CACHE_EVICTION_INTERVAL) {
+            cache.removeBefore(point);
+            if (grownResults != null) grownResults.removeBefore(point);
+            evictedBefore = point;
         }
+    }
+
+    /**
+     * Sets the span of the AST to the range from start to end if the AST has no span yet (an AST returned by
+     * atSuccess can be the AST of a subparser that already has its span). If start is -1, no subresult has a span,
+     * so the span is the empty range at the current position.
+     * @param ast AST (can be null)
+     * @param start index of the first char
+     * @param end index after the last char
+     * @return Returns the passed AST.
+     */
+    AST<TYPE> withSpan(AST<TYPE> ast, int start, int end) {
+        return withSpan(ast, start, end, consumable.index());
+    }
+
+    /**
+     * Like withSpan(ast, start, end), but with the current index passed in.
+     */
+    static <TYPE> AST<TYPE> withSpan(AST<TYPE> ast, int start, int end, int index) {
+        if (ast != null && !ast.hasSpan() && !ast.isShared()) {
+            if (start < 0) {
+                start = index;
+                end = index;
+            }
+            ast.setSpan(start, end);
+        }
+        return ast;
+    }
 
-        return Optional.empty();
+    /**
+     * Stores the result of the rule that started at the start index (the end index is the current index).
+     * @param rulePolicy memo policy of the rule (null if the rule uses the policy of the parse)
+     */
+    void putToCache(int start, int rule, MemoPolicy rulePolicy, AST<TYPE> result) {
+        tableOf(rulePolicy).put(start, rule, consumable.index(), result);
+    }
+
+    /**
+     * Looks up the result of the rule at the start index. If there is one, the result is pushed onto the result
+     * stack and the consumable goes to the end index of the result.
+     * @param rulePolicy memo policy of the rule (null if the rule uses the policy of the parse)
+     * @return Returns whether a result was found.
+     */
+    boolean pushFromCache(int start, int rule, MemoPolicy rulePolicy) {
+        MemoTable<TYPE> table = tableOf(rulePolicy);
+        int slot = table.find(start, rule);
+        if (slot < 0) return false;
+
+        consumable.gotoIndex(table.endAt(slot));
+        resultStack.push(table.resultAt(slot));
+        return true;
+    }
+
+    /**
+     * Looks up the grown (or growing) result of the rule at the start index. If there is one, the result is
+     * pushed onto the result stack and the consumable goes to the end index of the result.
+     * @return Returns whether a result was found.
+     */
+    boolean pushGrownResult(int start, int rule) {
+        if (grownResults == null) return false;
+
+        int slot = grownResults.find(start, rule);
+        if (slot < 0 || grownResults.endAt(slot) < 0) return false;
+
+        consumable.gotoIndex(grownResults.endAt(slot));
+        resultStack.push(grownResults.resultAt(slot));
+        return true;
+    }
+
+    /**
+     * Starts the growing of the rule at the start index with the failure as seed.
+     */
+    void beginGrowth(int start, int rule) {
+        if (grownResults == null) {
+            grownResults = new MemoTable<>(MemoPolicy.FULL);
+            growing = new int[8];
+        }
+        if (2 * numGrowing + 2 > growing.length) growing = Arrays.copyOf(growing, growing.length * 2);
+        growing[2 * numGrowing] = start;
+        growing[2 * numGrowing + 1] = rule;
+        numGrowing++;
+        grownResults.put(start, rule, start, failure());
+    }
+
+    /**
+     * Replaces the seed of the rule with the result if the result gets further than the seed
+     * (the end index is the current index). The grown results of the other rules of the cycle at the start index
+     * were evaluated with the old seed, so they have to be evaluated again (unless they are growing themselves).
+     * @param cycle rule ids of the rules of the cycle
+     * @return Returns whether the seed grew.
+     */
+    boolean growSeed(int start, int rule, int[] cycle, AST<TYPE> result) {
+        int slot = grownResults.find(start, rule);
+        int end = consumable.index();
+        if (isFailure(result) || (!isFailure(grownResults.resultAt(slot)) && end <= grownResults.endAt(slot))) {
+            return false;
+        }
+
+        grownResults.put(start, rule, end, result);
+        for (int other : cycle) {
+            if (other != rule && !isGrowing(start, other) && grownResults.find(start, other) >= 0) {
+                grownResults.put(start, other, -1, null);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Ends the growing of the rule: The seed is its result, so the seed is pushed onto the result stack and
+     * the consumable goes to the end index of the seed.
+     */
+    void endGrowth(int start, int rule) {
+        numGrowing--;
+        int slot = grownResults.find(start, rule);
+        consumable.gotoIndex(grownResults.endAt(slot));
+        resultStack.push(grownResults.resultAt(slot));
+    }
+
+    private boolean isGrowing(int start, int rule) {
+        for (int i = 0; i < numGrowing; i++) {
+            if (growing[2 * i] == start && growing[2 * i + 1] == rule) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param cycle rule ids of the rules of a cycle
+     * @return Returns whether a rule of the cycle grows at the start index.
+     */
+    boolean isGrowing(int start, int[] cycle) {
+        for (int rule : cycle) {
+            if (isGrowing(start, rule)) return true;
+        }
+        return false;
+    }
+
+    private MemoTable<TYPE> tableOf(MemoPolicy rulePolicy) {
+        return cache.tableOf(profiler == null ? rulePolicy : null);
+    }
+
+    /**
+     * Records that the rule stored a result (if the parse is profiled).
+     */
+    void profileStore(String rule) {
+        if (profiler != null) profiler.recordStore(rule);
+    }
+
+    /**
+     * Records that a stored result of the rule was used (if the parse is profiled).
+     */
+    void profileHit(String rule) {
+        if (profiler != null) profiler.recordHit(rule);
     }
 
     private void run() {
@@ -74,9 +381,62 @@ public class Environment<TYPE> {
         }
     }
 
-    public Optional<AST<TYPE>> startWith(Parser<TYPE> parser) {
+    /**
+     * Like run, but the parse is suspended if the consumable needs input that was not pushed yet
+     * (see PushConsumable). The step that needed the input is repeated by the next call. This works because a step
+     * reads the input before it changes the stacks, so a suspended step only has to go back to its start index.
+     * @return Returns whether the parse finished (false if it was suspended).
+     */
+    boolean resume() {
+        while (!parserStack.isEmpty() || !callbackStack.isEmpty()) {
+            int index = consumable.index();
+            int pins = numPinnedMarks;
+            if (!parserStack.isEmpty()) {
+                var parser = parserStack.pop();
+                try {
+                    if (parser != null) parser.processWith(this);
+                } catch (NeedMoreInputException e) {
+                    suspend(index, pins);
+                    parserStack.push(parser);
+                    return false;
+                }
+            } else {
+                var callback = callbackStack.pop();
+                try {
+                    callback.accept(consumable);
+                } catch (NeedMoreInputException e) {
+                    suspend(index, pins);
+                    callbackStack.push(callback);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void suspend(int index, int pins) {
+        consumable.gotoIndex(index);
+        numPinnedMarks = pins;
+    }
+
+    /**
+     * Pushes the parser (the parse is run by run or resume).
+     */
+    void begin(Parser<TYPE> parser) {
         executeAndThenCall(parser, (consumable) -> {});
+    }
+
+    /**
+     * @return Returns the result of the finished parse.
+     */
+    Optional<AST<TYPE>> result() {
+        AST<TYPE> result = resultStack.pop();
+        return isFailure(result) ? Optional.empty() : Optional.of(result);
+    }
+
+    public Optional<AST<TYPE>> startWith(Parser<TYPE> parser) {
+        begin(parser);
         run();
-        return resultStack.pop();
+        return result();
     }
 }
@@ -0,0 +1,167 @@
+package org.parser.base;
+
+import org.parser.RegexSyntax;
+
+import java.util.regex.Pattern;
+
+/**
+ * The chars a parser can start with (the first char after the ignored strings). The ASCII chars are stored
+ * in a bitset, all other chars count as one char. A first set that contains the empty string belongs to a parser
+ * that can succeed without consuming a char, so such a parser is always tried.
+ */
+public final class FirstSet {
+    /**
+     * First set of a parser that is not analyzed: it can start with every char (or with no char).
+     */
+    public static final FirstSet ANY = new FirstSet(-1L, -1L, true, true);
+    /**
+     * First set of the empty string.
+     */
+    public static final FirstSet EMPTY = new FirstSet(0L, 0L, false, true);
+    /**
+     * Number of buckets of bucketOf (the ASCII chars, the other chars and the end of the input).
+     */
+    static final int NUM_BUCKETS = 130;
+    private static final int OTHER_BUCKET = 128;
+    private static final int END_BUCKET = 129;
+
+    /**
+     * Bits of the chars 0 to 63.
+     */
+    private final long low;
+    /**
+     * Bits of the chars 64 to 127.
+     */
+    private final long high;
+    /**
+     * Whether the set contains the chars from 128 on.
+     */
+    private final boolean other;
+    private final boolean empty;
+
+    private FirstSet(long low, long high, boolean other, boolean empty) {
+        this.low = low;
+        this.high = high;
+        this.other = other;
+        this.empty = empty;
+    }
+
+    /**
+     * @param c char
+     * @return Returns the first set that contains only the char.
+     */
+    public static FirstSet of(char c) {
+        return range(c, c);
+    }
+
+    /**
+     * @return Returns the first set of the chars from "from" to "to" (inclusive).
+     */
+    public static FirstSet range(char from, char to) {
+        long low = 0;
+        long high = 0;
+        for (int c = from; c <= Math.min(to, 127); c++) {
+            if (c < 64) low |= 1L << c;
+            else high |= 1L << (c - 64);
+        }
+        return new FirstSet(low, high, to >= 128, false);
+    }
+
+    public FirstSet union(FirstSet other) {
+        return new FirstSet(low | other.low, high | other.high, this.other || other.other, empty || other.empty);
+    }
+
+    /**
+     * @return Returns this set with the empty string.
+     */
+    public FirstSet withEmpty() {
+        return empty ? this : new FirstSet(low, high, other, true);
+    }
+
+    /**
+     * @param next first set of the parser after the parser of this set
+     * @return Returns the first set of the parser of this set followed by the other parser.
+     */
+    public FirstSet then(FirstSet next) {
+        return empty ? new FirstSet(low | next.low, high | next.high, other || next.other, next.empty) : this;
+    }
+
+    /**
+     * @param c char (-1 for the end of the input)
+     * @return Returns whether a parser of this set can start with the char.
+     */
+    public boolean contains(int c) {
+        if (c < 0) return false;
+        if (c < 64) return (low & (1L << c)) != 0;
+        if (c < 128) return (high & (1L << (c - 64))) != 0;
+        return other;
+    }
+
+    /**
+     * @return Returns whether the set contains the empty string.
+     */
+    public boolean containsEmpty() {
+        return empty;
+    }
+
+    /**
+     * @return Returns whether a parser of this set has to be tried for every char.
+     */
+    boolean isUnrestricted() {
+        return empty || (low == -1L && high == -1L && other);
+    }
+
+    /**
+     * The chars that no first set distinguishes share a bucket.
+     * @param c char (-1 for the end of the input)
+     * @return Returns the bucket of the char.
+     */
+    static int bucketOf(int c) {
+        if (c < 0) return END_BUCKET;
+        return c < 128 ? c : OTHER_BUCKET;
+    }
+
+    /**
+     * @return Returns whether a parser of this set can start with a char of the bucket.
+     */
+    boolean containsBucket(int bucket) {
+        if (bucket == END_BUCKET) return empty;
+        return empty || contains(bucket == OTHER_BUCKET ? 128 : bucket);
+    }
+
+    /**
+     * Computes the first set of the regular expression from its syntax tree (see RegexSyntax). The analysis is
+     * conservative: Patterns that RegexSyntax does not understand (e.g. lookarounds, anchors, back references or
+     * flags) lead to ANY.
+     * @param pattern Pattern
+     * @return Returns the first set of the pattern.
+     */
+    public static FirstSet ofRegex(Pattern pattern) {
+        RegexSyntax.Node node = RegexSyntax.parse(pattern);
+        return node != null ? of(node) : ANY;
+    }
+
+    private static FirstSet of(RegexSyntax.Node node) {
+        if (node instanceof RegexSyntax.Chars chars) {
+            int[] ranges = chars.ranges();
+            FirstSet result = new FirstSet(0L, 0L, false, false);
+            for (int i = 0; i < ranges.length; i += 2) {
+                result = result.union(range((char) ranges[i], (char) ranges[i + 1]));
+            }
+            return result;
+        }
+        if (node instanceof RegexSyntax.Sequence sequence) {
+            FirstSet result = EMPTY;
+            for (RegexSyntax.Node element : sequence.nodes()) {
+                result = result.then(of(element));
+            }
+            return result;
+        }
+        if (node instanceof RegexSyntax.Choice choice) {
+            return choice.alternatives().stream().map(FirstSet::of).reduce(FirstSet::union).orElse(EMPTY);
+        }
+        var repeat = (RegexSyntax.Repeat) node;
+        FirstSet first = of(repeat.node());
+        return repeat.min() == 0 ? first.withEmpty() : first;
+    }
+}
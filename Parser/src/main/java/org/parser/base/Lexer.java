@@ -0,0 +1,137 @@
+package org.parser.base;
+
+import org.parser.Consumable;
+import org.parser.StreamingConsumable;
+import org.parser.TokenTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Optional tokenizing front-end of the regex-parsers of a grammar (see ParserPool.lexer). tokenize runs once over
+ * the input: at every token start all patterns of the grammar are matched (the patterns whose first set does not
+ * contain the next char are skipped) and the longest match is the next token. The matches are stored in a token
+ * table of the consumable, so a terminal that is parsed at a token start looks up its match instead of running
+ * its pattern again, no matter how often the parser comes back to the position. Terminals that are parsed at
+ * other positions (context-dependent terminals) are matched with their patterns as usual, so the ASTs are the same
+ * as without the lexer. A lexer does not change, so it can be shared by all threads.
+ * @param <TYPE> type of the AST
+ */
+public final class Lexer<TYPE> {
+    /**
+     * One terminal for every distinct pattern (in the order the terminals were found).
+     */
+    private final List<RegExParser<TYPE>> patterns;
+    private final FirstSet[] firstSets;
+    /**
+     * Id of the first terminal and the pattern indices of the terminals (see TokenTable).
+     */
+    private final int firstTerminal;
+    private final int[] patternOf;
+
+    /**
+     * Collects the regex-parsers of the parser graphs. The lexer should be created from the parsers before they
+     * are compiled, since compiled parsers do not expose their subparsers (the compiled parsers use the same
+     * terminals, so they use the token tables of the lexer too).
+     * @param parsers parsers of the grammar
+     */
+    public Lexer(Collection<? extends Parser<TYPE>> parsers) {
+        List<RegExParser<TYPE>> terminals = new ArrayList<>();
+        Set<Parser<TYPE>> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Parser<TYPE> parser : parsers) {
+            collectTerminals(parser, visited, terminals);
+        }
+
+        this.patterns = new ArrayList<>();
+        Map<String, Integer> indexOfPattern = new HashMap<>();
+        int[] indices = new int[terminals.size()];
+        for (int i = 0; i < terminals.size(); i++) {
+            var terminal = terminals.get(i);
+            String key = terminal.pattern().flags() + "/" + terminal.pattern().pattern();
+            indices[i] = indexOfPattern.computeIfAbsent(key, k -> {
+                patterns.add(terminal);
+                return patterns.size() - 1;
+            });
+        }
+        this.firstSets = patterns.stream().map(RegExParser::firstSet).toArray(FirstSet[]::new);
+
+        int min = terminals.stream().mapToInt(RegExParser::terminalId).min().orElse(0);
+        int max = terminals.stream().mapToInt(RegExParser::terminalId).max().orElse(-1);
+        this.firstTerminal = min;
+        this.patternOf = new int[max - min + 1];
+        Arrays.fill(patternOf, -1);
+        for (int i = 0; i < terminals.size(); i++) {
+            patternOf[terminals.get(i).terminalId() - min] = indices[i];
+        }
+    }
+
+    private static <TYPE> void collectTerminals(Parser<TYPE> parser, Set<Parser<TYPE>> visited,
+                                                List<RegExParser<TYPE>> terminals) {
+        if (parser == null || !visited.add(parser)) return;
+        if (parser instanceof RegExParser<TYPE> regExParser) terminals.add(regExParser);
+        for (Parser<TYPE> subparser : parser.subparsers()) {
+            collectTerminals(subparser, visited, terminals);
+        }
+    }
+
+    /**
+     * @return Returns the number of distinct patterns of the lexer.
+     */
+    public int size() {
+        return patterns.size();
+    }
+
+    /**
+     * Tokenizes the input from the current index of the consumable on and sets the token table of the
+     * consumable. Tokenizing stops at the first position where no pattern matches (or only with an empty match),
+     * the rest of the input is parsed without tokens.
+     * @param consumable consumable of the whole input (streaming consumables are not supported)
+     * @return Returns the consumable.
+     */
+    public <C extends Consumable> C tokenize(C consumable) {
+        if (consumable instanceof StreamingConsumable) {
+            throw new IllegalArgumentException("A streaming consumable cannot be tokenized.");
+        }
+        consumable.setTokens(null);
+
+        int begin = consumable.index();
+        TokenTable tokens = new TokenTable(firstTerminal, patternOf, patterns.size());
+        int[] ends = new int[patterns.size()];
+        int index = begin;
+        while (true) {
+            consumable.gotoIndex(index);
+            int c = consumable.nextChar();
+            if (c < 0) break;
+
+            int start = consumable.index();
+            int longest = start;
+            for (int p = 0; p < patterns.size(); p++) {
+                ends[p] = -1;
+                if (!firstSets[p].contains(c) && !firstSets[p].containsEmpty()) continue;
+
+                consumable.gotoIndex(start);
+                var terminal = patterns.get(p);
+                var match = consumable.lookingAtTerminal(terminal.terminalId(), terminal.pattern(),
+                        terminal.literal(), terminal.dfa());
+                if (match.isPresent()) {
+                    ends[p] = match.get().end();
+                    longest = Math.max(longest, ends[p]);
+                }
+            }
+            tokens.add(start, ends);
+            if (longest == start) break;
+            index = longest;
+        }
+
+        consumable.gotoIndex(begin);
+        consumable.setTokens(tokens);
+        return consumable;
+    }
+}
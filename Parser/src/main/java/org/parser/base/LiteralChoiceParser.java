@@ -0,0 +1,130 @@
+package org.parser.base;
+
+import org.parser.Consumable;
+import org.parser.tree.AST;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adjacent alternatives of an or-parser that each consist of one literal (see OrParser.collapseLiterals).
+ * Instead of trying the literals one after the other, one walk through a trie of the literals finds all literals
+ * at the current position. The first of these alternatives wins (like with the or-parser, so "<=" before "<"
+ * still matches "<=") and creates its AST with its concat-parser.
+ * @param <TYPE> type of the AST
+ */
+public final class LiteralChoiceParser<TYPE> implements TerminalParser<TYPE> {
+    /**
+     * Maximum number of alternatives (the alternatives of a trie node are stored in a long).
+     */
+    static final int MAX_ALTERNATIVES = Long.SIZE;
+
+    private final List<ConcatParser<TYPE>> alternatives;
+    private final List<RegExParser<TYPE>> terminals;
+    /**
+     * children[node][c] is the child of the node for the ASCII char c (0 if there is none, the root is node 0).
+     */
+    private final int[][] children;
+    /**
+     * Bitset of the alternatives whose literal ends at the node.
+     */
+    private final long[] ends;
+    private final List<Parser<TYPE>> subparsers;
+
+    /**
+     * @param alternatives concat-parsers that consist of one regex-parser with an ASCII literal
+     */
+    LiteralChoiceParser(List<ConcatParser<TYPE>> alternatives) {
+        if (alternatives.size() > MAX_ALTERNATIVES) throw new IllegalArgumentException("Too many alternatives.");
+        this.alternatives = List.copyOf(alternatives);
+        this.terminals = alternatives.stream().map(concat -> (RegExParser<TYPE>) concat.subparsers().get(0)).toList();
+        this.subparsers = List.copyOf(alternatives);
+
+        List<int[]> nodes = new ArrayList<>();
+        nodes.add(new int[128]);
+        List<Long> nodeEnds = new ArrayList<>(List.of(0L));
+        for (int i = 0; i < terminals.size(); i++) {
+            String literal = terminals.get(i).literal();
+            int node = 0;
+            for (int j = 0; j < literal.length(); j++) {
+                char c = literal.charAt(j);
+                if (nodes.get(node)[c] == 0) {
+                    nodes.get(node)[c] = nodes.size();
+                    nodes.add(new int[128]);
+                    nodeEnds.add(0L);
+                }
+                node = nodes.get(node)[c];
+            }
+            nodeEnds.set(node, nodeEnds.get(node) | (1L << i));
+        }
+
+        this.children = nodes.toArray(int[][]::new);
+        this.ends = nodeEnds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * @return Returns whether the parser is a literal alternative that can be part of a literal choice
+     * (a concat-parser that consists of one regex-parser with an ASCII literal).
+     */
+    static <TYPE> boolean isLiteralAlternative(Parser<TYPE> parser) {
+        if (parser.getClass() != ConcatParser.class || parser.subparsers().size() != 1) return false;
+        if (!(parser.subparsers().get(0) instanceof RegExParser<TYPE> regExParser)) return false;
+        if (regExParser.getClass() != RegExParser.class || regExParser.literal() == null) return false;
+        return regExParser.literal().chars().allMatch(c -> c < 128);
+    }
+
+    @Override
+    public AST<TYPE> parseTerminal(Consumable consumable) {
+        for (long candidates = candidates(consumable); candidates != 0; candidates &= candidates - 1) {
+            int alternative = Long.numberOfTrailingZeros(candidates);
+            int index = consumable.index();
+            AST<TYPE> ast = terminals.get(alternative).parseTerminal(consumable);
+            if (ast == null) continue;
+
+            List<AST<TYPE>> ASTs = new ArrayList<>(1);
+            if (!ast.shouldIgnore()) ASTs.add(ast);
+            AST<TYPE> result = alternatives.get(alternative).atSuccess().apply(ASTs);
+            if (result != null) {
+                return ast.hasSpan()
+                        ? Environment.withSpan(result, ast.getStart(), ast.getEnd(), consumable.index())
+                        : Environment.withSpan(result, -1, -1, consumable.index());
+            }
+            consumable.gotoIndex(index);
+        }
+        return null;
+    }
+
+    /**
+     * Walks through the trie with the next chars.
+     * @return Returns the bitset of the alternatives whose literal is at the current position.
+     */
+    private long candidates(Consumable consumable) {
+        long found = 0;
+        int node = 0;
+        for (int offset = 0; ; offset++) {
+            found |= ends[node];
+            int c = consumable.nextChar(offset);
+            if (c < 0 || c >= 128 || children[node][c] == 0) return found;
+            node = children[node][c];
+        }
+    }
+
+    /**
+     * @return Returns the chars the literals start with.
+     */
+    public FirstSet firstSet() {
+        return terminals.stream().map(RegExParser::firstSet).reduce(FirstSet::union).orElse(FirstSet.ANY);
+    }
+
+    List<ConcatParser<TYPE>> alternatives() {
+        return alternatives;
+    }
+
+    /**
+     * @return Returns the alternatives (they contain all subparsers of this parser).
+     */
+    @Override
+    public List<Parser<TYPE>> subparsers() {
+        return subparsers;
+    }
+}
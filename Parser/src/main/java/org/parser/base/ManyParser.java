@@ -5,7 +5,6 @@ import org.parser.tree.AST;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 import java.util.function.Function;
 
 /**
@@ -41,11 +40,29 @@ public class ManyParser<TYPE> implements Parser<TYPE> {
         executeParserRec(environment, 0);
     }
 
+    Function<List<AST<TYPE>>, AST<TYPE>> atSuccess() {
+        return atSuccess;
+    }
+
+    Parser<TYPE> parser() {
+        return parser;
+    }
+
+    @Override
+    public List<Parser<TYPE>> subparsers() {
+        return parser != null ? List.of(parser) : List.of();
+    }
+
+    @Override
+    public boolean canFail() {
+        return false;
+    }
+
     private void executeParserRec(Environment<TYPE> environment, int n) {
         environment.executeAndThenCall(parser, (v) -> {
             assert !environment.resultStack().isEmpty() : errorMsg;
 
-            if (environment.resultStack().peek().isPresent()) {
+            if (!Environment.isFailure(environment.resultStack().peek())) {
                 executeParserRec(environment, n + 1);
             } else {
                 environment.resultStack().pop();
@@ -56,12 +73,19 @@ public class ManyParser<TYPE> implements Parser<TYPE> {
 
     private void aggregateResults(Environment<TYPE> environment, int n) {
         ArrayList<AST<TYPE>> ASTs = new ArrayList<>(n);
+        int start = -1;
+        int end = -1;
         for (int i = 0; i < n; i++) {
-            var optionalAST = environment.resultStack().pop();
-            assert optionalAST.isPresent() : errorMsg;
+            var ast = environment.resultStack().pop();
+            assert !Environment.isFailure(ast) : errorMsg;
 
-            ASTs.add(0, optionalAST.get());
+            if (ast.hasSpan()) {
+                if (end < 0) end = ast.getEnd();
+                start = ast.getStart();
+            }
+            ASTs.add(0, ast);
         }
-        environment.resultStack().push(Optional.ofNullable(atSuccess.apply(ASTs)));
+        AST<TYPE> result = atSuccess.apply(ASTs);
+        environment.resultStack().push(result != null ? environment.withSpan(result, start, end) : Environment.failure());
     }
 }
@@ -0,0 +1,79 @@
+package org.parser.base;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Decides for each rule whether its results are memoized (created by a MemoProfiler). A memoized rule uses the
+ * memo policy of the parse, every other rule of the plan uses MemoPolicy.OFF. Rules that are not part of the plan
+ * keep their policy.
+ */
+public final class MemoPlan {
+    /**
+     * Whether the rule is memoized, by rule name.
+     */
+    private final Map<String, Boolean> memoized;
+
+    MemoPlan(Map<String, Boolean> memoized) {
+        this.memoized = Collections.unmodifiableMap(new TreeMap<>(memoized));
+    }
+
+    /**
+     * @return Returns the names of the rules of the plan.
+     */
+    public Set<String> rules() {
+        return memoized.keySet();
+    }
+
+    /**
+     * @param rule rule name
+     * @return Returns whether the plan decides about the rule.
+     */
+    public boolean contains(String rule) {
+        return memoized.containsKey(rule);
+    }
+
+    /**
+     * @param rule rule name
+     * @return Returns whether the plan memoizes the results of the rule.
+     */
+    public boolean memoizes(String rule) {
+        return memoized.getOrDefault(rule, false);
+    }
+
+    /**
+     * @param rule rule name
+     * @return Returns the memo policy of the rule (null if the rule uses the policy of the parse).
+     */
+    public MemoPolicy policyOf(String rule) {
+        return memoizes(rule) ? null : MemoPolicy.OFF;
+    }
+
+    /**
+     * Sets the memo policies of the rules (placeholder-parsers) that are reachable from the parsers.
+     * Parsers that were compiled before are not changed.
+     * @param parsers Parsers
+     */
+    public <TYPE> void applyTo(Collection<? extends Parser<TYPE>> parsers) {
+        Set<Parser<TYPE>> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        parsers.forEach(parser -> applyRec(parser, visited));
+    }
+
+    private <TYPE> void applyRec(Parser<TYPE> parser, Set<Parser<TYPE>> visited) {
+        if (parser == null || !visited.add(parser)) return;
+
+        if (parser instanceof PlaceholderParser<TYPE> placeholder && contains(placeholder.name())) {
+            placeholder.setMemoPolicy(policyOf(placeholder.name()));
+        }
+        parser.subparsers().forEach(subparser -> applyRec(subparser, visited));
+    }
+
+    @Override
+    public String toString() {
+        return "MemoPlan" + memoized;
+    }
+}
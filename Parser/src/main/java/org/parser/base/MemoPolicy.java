@@ -0,0 +1,73 @@
+package org.parser.base;
+
+/**
+ * Determines which results of the rules (placeholder-parsers) are memoized during a parse.
+ * A policy can be passed to a parse (Parser.parse(consumable, policy)) or set for a single rule
+ * (Rule.memo(policy)); the policy of a rule takes precedence over the policy of the parse.
+ * Rules with the same policy object share one memo table.
+ */
+public final class MemoPolicy {
+    public enum Kind {
+        /**
+         * Nothing is memoized.
+         */
+        OFF,
+        /**
+         * Every result is memoized (until no parser can go back to its start anymore).
+         */
+        FULL,
+        /**
+         * Only the results that start at most bound chars before the current position are kept.
+         */
+        WINDOW,
+        /**
+         * At most bound results are kept. If the table is full, the results that were not used recently are removed.
+         */
+        LRU
+    }
+
+    public static final MemoPolicy OFF = new MemoPolicy(Kind.OFF, 0);
+    public static final MemoPolicy FULL = new MemoPolicy(Kind.FULL, 0);
+
+    private final Kind kind;
+    private final int bound;
+
+    private MemoPolicy(Kind kind, int bound) {
+        this.kind = kind;
+        this.bound = bound;
+    }
+
+    /**
+     * @param chars size of the window (in chars before the current position)
+     * @return Returns a policy that keeps the results of the window.
+     */
+    public static MemoPolicy window(int chars) {
+        if (chars <= 0) throw new IllegalArgumentException("The window must be positive.");
+        return new MemoPolicy(Kind.WINDOW, chars);
+    }
+
+    /**
+     * @param entries maximum number of results
+     * @return Returns a policy that keeps at most the number of results (the recently used ones).
+     */
+    public static MemoPolicy lru(int entries) {
+        if (entries <= 0) throw new IllegalArgumentException("The number of entries must be positive.");
+        return new MemoPolicy(Kind.LRU, entries);
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    /**
+     * @return Returns the window size (WINDOW), the maximum number of results (LRU) or 0.
+     */
+    public int bound() {
+        return bound;
+    }
+
+    @Override
+    public String toString() {
+        return bound > 0 ? kind + "(" + bound + ")" : kind.toString();
+    }
+}
@@ -0,0 +1,87 @@
+package org.parser.base;
+
+import org.parser.Consumable;
+import org.parser.tree.AST;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Training mode of the memoization: parses sample inputs with every rule memoized and records how often the
+ * memoized results of each rule are used again. The resulting MemoPlan only memoizes the rules whose results are
+ * reused often enough to pay for storing them.
+ * @param <TYPE> type of the AST
+ */
+public final class MemoProfiler<TYPE> {
+    /**
+     * Default minimum hit rate (memo hits per stored result) of a memoized rule.
+     */
+    public static final double DEFAULT_MIN_HIT_RATE = 0.1;
+
+    private final Parser<TYPE> parser;
+    /**
+     * Number of stored results and number of hits, by rule name.
+     */
+    private final Map<String, long[]> counts;
+
+    public MemoProfiler(Parser<TYPE> parser) {
+        this.parser = parser;
+        this.counts = new HashMap<>();
+    }
+
+    /**
+     * Parses the sample (with the environment; the policies of the rules are ignored while training).
+     * @param sample Consumable
+     * @return Returns the AST of the sample (empty if parsing error).
+     */
+    public Optional<AST<TYPE>> train(Consumable sample) {
+        Environment<TYPE> environment = new Environment<>(sample, parser.depthHint(), MemoPolicy.FULL);
+        environment.profileWith(this);
+        return environment.startWith(parser);
+    }
+
+    /**
+     * Parses the sample (see train(Consumable)).
+     * @param sample CharSequence
+     * @return Returns the AST of the sample (empty if parsing error).
+     */
+    public Optional<AST<TYPE>> train(CharSequence sample) {
+        return train(parser.consumableOf(sample));
+    }
+
+    void recordStore(String rule) {
+        counts.computeIfAbsent(rule, name -> new long[2])[0]++;
+    }
+
+    void recordHit(String rule) {
+        counts.computeIfAbsent(rule, name -> new long[2])[1]++;
+    }
+
+    /**
+     * @param rule rule name
+     * @return Returns the memo hits per stored result of the rule (0 if the rule was not reached).
+     */
+    public double hitRate(String rule) {
+        long[] count = counts.get(rule);
+        return count == null || count[0] == 0 ? 0 : (double) count[1] / count[0];
+    }
+
+    /**
+     * @return Returns the plan with the default minimum hit rate.
+     */
+    public MemoPlan plan() {
+        return plan(DEFAULT_MIN_HIT_RATE);
+    }
+
+    /**
+     * Creates the plan for the rules that were reached while training.
+     * @param minHitRate minimum hit rate of a memoized rule
+     * @return Returns the plan that memoizes the rules with at least the minimum hit rate.
+     */
+    public MemoPlan plan(double minHitRate) {
+        Map<String, Boolean> memoized = new HashMap<>();
+        counts.keySet().forEach(rule -> memoized.put(rule, hitRate(rule) >= minHitRate));
+        return new MemoPlan(memoized);
+    }
+}
@@ -0,0 +1,193 @@
+package org.parser.base;
+
+import org.parser.tree.AST;
+
+import java.util.Arrays;
+
+/**
+ * Memo table of the rules: maps a start index and a rule id to the end index and the result of the rule.
+ * Start index and rule id are packed into one long key and the entries are stored in parallel arrays
+ * (open addressing with linear probing), so neither a lookup nor an insertion allocates a key or value object.
+ * Which entries are kept is determined by the memo policy of the table.
+ * @param <TYPE> type of the ASTs
+ */
+final class MemoTable<TYPE> {
+    private static final int INITIAL_CAPACITY = 64;
+    /**
+     * A cleared table keeps its arrays if they are not larger than this.
+     */
+    private static final int MAX_RETAINED_CAPACITY = 1 << 12;
+    private static final long FREE = -1L;
+
+    private final MemoPolicy policy;
+    /**
+     * Packed key of each entry (FREE if the slot is free).
+     */
+    private long[] keys;
+    private int[] ends;
+    private Object[] results;
+    /**
+     * Time of the last use of each entry (only for the LRU policy).
+     */
+    private long[] stamps;
+    private int size;
+    private long clock;
+    /**
+     * All entries before this index were removed because they left the window (only for the WINDOW policy).
+     */
+    private int windowStart;
+
+    MemoTable(MemoPolicy policy) {
+        this.policy = policy;
+        this.clock = 0;
+        this.windowStart = 0;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Searches the entry of the rule at the start index.
+     * @param start start index
+     * @param rule rule id
+     * @return Returns the slot of the entry or -1 if there is no entry.
+     */
+    int find(int start, int rule) {
+        if (size == 0) return -1;
+
+        long key = key(start, rule);
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; keys[slot] != FREE; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                if (stamps != null) stamps[slot] = ++clock;
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    int endAt(int slot) {
+        return ends[slot];
+    }
+
+    @SuppressWarnings("unchecked")
+    AST<TYPE> resultAt(int slot) {
+        return (AST<TYPE>) results[slot];
+    }
+
+    /**
+     * Inserts (or replaces) the entry of the rule at the start index if the policy keeps it.
+     */
+    void put(int start, int rule, int end, AST<TYPE> result) {
+        switch (policy.kind()) {
+            case OFF -> {
+                return;
+            }
+            case WINDOW -> {
+                int limit = start - policy.bound();
+                if (limit - windowStart >= policy.bound()) {
+                    removeBefore(limit);
+                    windowStart = limit;
+                }
+            }
+            case LRU -> {
+                if (size >= policy.bound()) removeLeastRecentlyUsed();
+            }
+            default -> {}
+        }
+        if (2 * (size + 1) > keys.length) rehash(keys.length * 2, 0, 0);
+        insert(key(start, rule), end, result, ++clock);
+    }
+
+    /**
+     * Removes all entries whose start index is before the index.
+     */
+    void removeBefore(int index) {
+        rehash(shrunkCapacity(), index, 0);
+    }
+
+    int size() {
+        return size;
+    }
+
+    MemoPolicy policy() {
+        return policy;
+    }
+
+    /**
+     * Removes all entries. The arrays are kept for the next parse (unless they grew very large).
+     */
+    void clear() {
+        if (keys.length > MAX_RETAINED_CAPACITY) {
+            allocate(INITIAL_CAPACITY);
+        } else {
+            Arrays.fill(keys, FREE);
+            Arrays.fill(results, null);
+            size = 0;
+        }
+        clock = 0;
+        windowStart = 0;
+    }
+
+    /**
+     * Removes the entries that were not used within the last bound/2 uses (at most bound/2 entries are kept,
+     * since every use stamps one entry).
+     */
+    private void removeLeastRecentlyUsed() {
+        rehash(shrunkCapacity(), 0, clock - policy.bound() / 2 + 1);
+    }
+
+    private int shrunkCapacity() {
+        int capacity = keys.length;
+        while (capacity > INITIAL_CAPACITY && 8 * size < capacity) capacity /= 2;
+        return capacity;
+    }
+
+    private void insert(long key, int end, AST<TYPE> result, long stamp) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == FREE) size++;
+        keys[slot] = key;
+        ends[slot] = end;
+        results[slot] = result;
+        if (stamps != null) stamps[slot] = stamp;
+    }
+
+    /**
+     * Moves the entries with a start index of at least minStart and a stamp of at least minStamp into new arrays
+     * with the given capacity.
+     */
+    @SuppressWarnings("unchecked")
+    private void rehash(int capacity, int minStart, long minStamp) {
+        long[] oldKeys = keys;
+        int[] oldEnds = ends;
+        Object[] oldResults = results;
+        long[] oldStamps = stamps;
+
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == FREE || (int) (oldKeys[i] >>> 32) < minStart) continue;
+            if (oldStamps != null && oldStamps[i] < minStamp) continue;
+            insert(oldKeys[i], oldEnds[i], (AST<TYPE>) oldResults[i], oldStamps != null ? oldStamps[i] : 0);
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.ends = new int[capacity];
+        this.results = new Object[capacity];
+        this.stamps = policy.kind() == MemoPolicy.Kind.LRU ? new long[capacity] : null;
+        this.size = 0;
+        Arrays.fill(keys, FREE);
+    }
+
+    private static long key(int start, int rule) {
+        return ((long) start << 32) | (rule & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32);
+    }
+}
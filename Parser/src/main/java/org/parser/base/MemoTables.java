@@ -0,0 +1,48 @@
+package org.parser.base;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The memo tables of one parse: one table with the policy of the parse and one table per policy that is set
+ * for single rules.
+ * @param <TYPE> type of the ASTs
+ */
+final class MemoTables<TYPE> {
+    private MemoTable<TYPE> parseTable;
+    private Map<MemoPolicy, MemoTable<TYPE>> ruleTables;
+
+    MemoTables(MemoPolicy parsePolicy) {
+        this.parseTable = new MemoTable<>(parsePolicy);
+        this.ruleTables = null;
+    }
+
+    /**
+     * @param rulePolicy policy of the rule (null if the rule has no policy of its own)
+     * @return Returns the table the results of the rule are stored in.
+     */
+    MemoTable<TYPE> tableOf(MemoPolicy rulePolicy) {
+        if (rulePolicy == null) return parseTable;
+
+        if (ruleTables == null) ruleTables = new IdentityHashMap<>();
+        return ruleTables.computeIfAbsent(rulePolicy, MemoTable::new);
+    }
+
+    /**
+     * Removes all entries for the next parse (the table of the parse is kept if the policy did not change).
+     * @param parsePolicy policy of the next parse (null if the policy does not change)
+     */
+    void reset(MemoPolicy parsePolicy) {
+        if (parsePolicy == null || parseTable.policy() == parsePolicy) parseTable.clear();
+        else parseTable = new MemoTable<>(parsePolicy);
+        if (ruleTables != null) ruleTables.values().forEach(MemoTable::clear);
+    }
+
+    /**
+     * Removes the entries before the index from all tables.
+     */
+    void removeBefore(int index) {
+        parseTable.removeBefore(index);
+        if (ruleTables != null) ruleTables.values().forEach(table -> table.removeBefore(index));
+    }
+}
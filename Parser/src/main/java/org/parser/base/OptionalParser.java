@@ -2,7 +2,7 @@ package org.parser.base;
 
 import org.parser.tree.AST;
 
-import java.util.Optional;
+import java.util.List;
 
 public class OptionalParser<TYPE> implements Parser<TYPE> {
     /**
@@ -16,16 +16,30 @@ public class OptionalParser<TYPE> implements Parser<TYPE> {
 
     /**
      * With an optional-parser, the stored parser is executed once.
-     * If the execution fails a shouldIgnore AST is returned, otherwise the ast of the execution is
+     * If the execution fails the shared ignore AST is returned, otherwise the ast of the execution is
      * returned. That means an optional-parser is always successful.
      */
     @Override
     public void processWith(Environment<TYPE> environment) {
         environment.executeAndThenCall(parser, (v) -> {
-            var optionalAST = environment.resultStack().pop();
-            environment.resultStack().push(
-                    Optional.of(optionalAST.orElse(new AST<TYPE>(null).setIgnore(true)))
-            );
+            if (Environment.isFailure(environment.resultStack().peek())) {
+                environment.resultStack().pop();
+                environment.resultStack().push(AST.ignoreNode());
+            }
         });
     }
+
+    Parser<TYPE> parser() {
+        return parser;
+    }
+
+    @Override
+    public List<Parser<TYPE>> subparsers() {
+        return parser != null ? List.of(parser) : List.of();
+    }
+
+    @Override
+    public boolean canFail() {
+        return false;
+    }
 }
@@ -3,8 +3,10 @@ package org.parser.base;
 import org.parser.tree.AST;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.function.Function;
 
 /**
@@ -12,16 +14,29 @@ import java.util.function.Function;
  */
 public class OrParser<TYPE> implements WithSubparsers<TYPE> {
     private static final String errorMsg = "Fail at Or: Internal error. Should not happen.";
-    private final List<Parser<TYPE>> parsers;
+    private List<Parser<TYPE>> parsers;
     /**
      * This method is called as soon as the first parser was successful. It is then passed the supplied
      * AST is passed to it. This method should then eventually return the resulting AST.
      */
     private final Function<AST<TYPE>, AST<TYPE>> atSuccess;
+    /**
+     * Depth hint of the parser (set by the ParserBuilder for the parsers of the rules).
+     */
+    private int depthHint;
+    /**
+     * Indices of the alternatives that are tried for the next char (by the bucket of the char, see FirstSet.bucketOf).
+     * Null if every alternative is tried.
+     */
+    private int[][] dispatch;
+    private boolean frozen;
 
     public OrParser(Function<AST<TYPE>, AST<TYPE>> atSuccess) {
         this.atSuccess = atSuccess != null ? atSuccess : Parser.basicOrAtSuccess();
         this.parsers = new ArrayList<>();
+        this.depthHint = Environment.DEFAULT_DEPTH_HINT;
+        this.dispatch = null;
+        this.frozen = false;
     }
 
     public OrParser(Function<AST<TYPE>, AST<TYPE>> atSuccess,
@@ -30,33 +45,180 @@ public class OrParser<TYPE> implements WithSubparsers<TYPE> {
         if (parsers != null) this.parsers.addAll(parsers);
     }
 
+    Function<AST<TYPE>, AST<TYPE>> atSuccess() {
+        return atSuccess;
+    }
+
+    /**
+     * If the first sets of the alternatives are known, only the alternatives that can start with the next char
+     * are tried (in their order, so the first successful alternative is still the result).
+     */
     @Override
     public void processWith(Environment<TYPE> environment) {
-        processParsersJustAtFailureRec(environment, 0);
+        int[] alternatives = dispatch != null ? dispatch[FirstSet.bucketOf(environment.nextChar())] : null;
+        processParsersJustAtFailureRec(environment, alternatives, 0);
     }
 
-    private void processParsersJustAtFailureRec(Environment<TYPE> environment, int index) {
-        if (index < parsers.size()) {
-            var parser = parsers.get(index);
+    /**
+     * @param alternatives indices of the alternatives to try (null if every alternative is tried)
+     */
+    private void processParsersJustAtFailureRec(Environment<TYPE> environment, int[] alternatives, int index) {
+        if (index < (alternatives != null ? alternatives.length : parsers.size())) {
+            var parser = parsers.get(alternatives != null ? alternatives[index] : index);
             environment.executeAndThenCall(parser, (v) -> {
                 assert !environment.resultStack().isEmpty() : errorMsg;
 
-                var optionalAST = environment.resultStack().pop();
-                if (optionalAST.isEmpty()) {
-                    processParsersJustAtFailureRec(environment, index + 1);
+                var ast = environment.resultStack().pop();
+                if (Environment.isFailure(ast)) {
+                    processParsersJustAtFailureRec(environment, alternatives, index + 1);
                 } else {
-                    var ast = optionalAST.get();
-                    environment.resultStack().push(Optional.of(atSuccess.apply(ast).setIgnore(ast.shouldIgnore())));
+                    var result = environment.withSpan(atSuccess.apply(ast), ast.getStart(), ast.getEnd());
+                    environment.resultStack().push(result.setIgnore(ast.shouldIgnore()));
                 }
             });
         } else {
-            environment.resultStack().push(Optional.empty());
+            environment.resultStack().push(Environment.failure());
         }
     }
 
     @Override
     public void addSubparser(Parser<TYPE> subparser) {
-        if (subparser != null) parsers.add(subparser);
+        requireNotFrozen();
+        if (subparser != null) {
+            parsers.add(subparser);
+            dispatch = null;
+        }
+    }
+
+    @Override
+    public List<Parser<TYPE>> subparsers() {
+        return Collections.unmodifiableList(parsers);
+    }
+
+    @Override
+    public int depthHint() {
+        return depthHint;
+    }
+
+    public void setDepthHint(int depthHint) {
+        requireNotFrozen();
+        this.depthHint = depthHint;
+    }
+
+    /**
+     * Replaces each run of adjacent alternatives that consist of one literal by one literal-choice-parser, which
+     * finds the matching literal with one walk through a trie (set by the ParserBuilder). The first matching
+     * alternative still wins.
+     */
+    public void collapseLiterals() {
+        requireNotFrozen();
+        List<Parser<TYPE>> collapsed = new ArrayList<>(parsers.size());
+        int i = 0;
+        while (i < parsers.size()) {
+            int end = i;
+            while (end < parsers.size() && end - i < LiteralChoiceParser.MAX_ALTERNATIVES
+                    && LiteralChoiceParser.isLiteralAlternative(parsers.get(end))) {
+                end++;
+            }
+
+            if (end - i < 2) {
+                collapsed.add(parsers.get(i));
+                i++;
+            } else {
+                List<ConcatParser<TYPE>> alternatives = new ArrayList<>();
+                parsers.subList(i, end).forEach(parser -> alternatives.add((ConcatParser<TYPE>) parser));
+                collapsed.add(new LiteralChoiceParser<>(alternatives));
+                i = end;
+            }
+        }
+        parsers = collapsed;
+        dispatch = null;
+    }
+
+    /**
+     * Replaces each run of adjacent alternatives that start with the same parser by one prefix-choice-parser,
+     * which parses the longest common prefix of the alternatives only once (set by the ParserBuilder).
+     * The results and their order stay the same.
+     */
+    public void factorPrefixes() {
+        requireNotFrozen();
+        List<Parser<TYPE>> factored = new ArrayList<>(parsers.size());
+        int i = 0;
+        while (i < parsers.size()) {
+            int end = i + 1;
+            while (end < parsers.size() && commonPrefixLength(parsers.get(i), parsers.get(end)) > 0) end++;
+
+            if (end - i < 2) {
+                factored.add(parsers.get(i));
+            } else {
+                List<ConcatParser<TYPE>> alternatives = new ArrayList<>();
+                int prefixLength = Integer.MAX_VALUE;
+                for (int j = i; j < end; j++) {
+                    alternatives.add((ConcatParser<TYPE>) parsers.get(j));
+                    prefixLength = Math.min(prefixLength, commonPrefixLength(parsers.get(i), parsers.get(j)));
+                }
+                factored.add(new PrefixChoiceParser<>(alternatives, prefixLength));
+            }
+            i = end;
+        }
+        parsers = factored;
+        dispatch = null;
+    }
+
+    /**
+     * @return Returns the number of leading subparsers that both concat-parsers share
+     * (0 if one of the parsers is no concat-parser).
+     */
+    private static <TYPE> int commonPrefixLength(Parser<TYPE> parser, Parser<TYPE> other) {
+        if (parser.getClass() != ConcatParser.class || other.getClass() != ConcatParser.class) return 0;
+
+        var parsers = parser.subparsers();
+        var others = other.subparsers();
+        int length = 0;
+        while (length < parsers.size() && length < others.size()
+                && PrefixChoiceParser.isSameParser(parsers.get(length), others.get(length))) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Sets the first sets of the alternatives (set by the ParserBuilder). Afterwards only the alternatives that
+     * can start with the next char are tried. If no alternative can be skipped, every alternative is tried as before.
+     * @param firstSets first set of each alternative
+     */
+    public void setFirstSets(List<FirstSet> firstSets) {
+        requireNotFrozen();
+        if (firstSets.size() != parsers.size()) {
+            throw new IllegalArgumentException("Expected " + parsers.size() + " first sets, got " + firstSets.size() + ".");
+        }
+        if (firstSets.stream().allMatch(FirstSet::isUnrestricted)) {
+            dispatch = null;
+            return;
+        }
+
+        dispatch = new int[FirstSet.NUM_BUCKETS][];
+        Map<List<Integer>, int[]> shared = new HashMap<>();
+        for (int bucket = 0; bucket < FirstSet.NUM_BUCKETS; bucket++) {
+            List<Integer> alternatives = new ArrayList<>();
+            for (int i = 0; i < firstSets.size(); i++) {
+                if (firstSets.get(i).containsBucket(bucket)) alternatives.add(i);
+            }
+            dispatch[bucket] = shared.computeIfAbsent(alternatives,
+                    (list) -> list.stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    @Override
+    public void freeze() {
+        if (!frozen) {
+            parsers = List.copyOf(parsers);
+            frozen = true;
+        }
+    }
+
+    private void requireNotFrozen() {
+        if (frozen) throw new IllegalStateException("The or-parser is frozen.");
     }
 
     @Override
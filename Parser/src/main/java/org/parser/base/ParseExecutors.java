@@ -0,0 +1,29 @@
+package org.parser.base;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors for Parser.parseAll.
+ */
+public final class ParseExecutors {
+    private ParseExecutors() {}
+
+    /**
+     * Returns an executor that runs every parse on a new virtual thread (Java 21 or newer). On older runtimes
+     * a cached thread pool with daemon threads is returned instead. The executor should be shut down after use.
+     * @return Returns an executor for many parses that block (e.g. on a reader).
+     */
+    public static ExecutorService virtualThreads() {
+        try {
+            var factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
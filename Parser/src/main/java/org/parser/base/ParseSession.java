@@ -0,0 +1,78 @@
+package org.parser.base;
+
+import org.parser.Consumable;
+import org.parser.tree.AST;
+
+import java.util.ArrayDeque;
+import java.util.Optional;
+
+/**
+ * A parse session reuses one environment (its stacks and memo tables) for many parses, so parsing many small
+ * inputs does not set up the parse state again and again. A session must only be used by one thread at a time.
+ * Parser.parse uses sessions from a pool of the current thread.
+ * @param <TYPE> type of the AST
+ */
+public final class ParseSession<TYPE> {
+    /**
+     * Maximum number of free sessions in the pool of a thread (more are only needed by nested parses).
+     */
+    private static final int MAX_POOLED_SESSIONS = 4;
+    private static final ThreadLocal<ArrayDeque<ParseSession<?>>> pool = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * Environment of the session (created by the first parse).
+     */
+    private Environment<TYPE> environment;
+
+    public ParseSession() {
+        this.environment = null;
+    }
+
+    /**
+     * Parses the consumable with the parser (see Parser.parse).
+     * @param parser Parser
+     * @param consumable Consumable
+     * @return An AST wrapped with Optional (empty if parsing error)
+     */
+    public Optional<AST<TYPE>> parse(Parser<TYPE> parser, Consumable consumable) {
+        return parse(parser, consumable, MemoPolicy.FULL);
+    }
+
+    /**
+     * Parses the consumable with the parser (see Parser.parse). The state of the previous parse is reset first.
+     * @param parser Parser
+     * @param consumable Consumable
+     * @param memoPolicy memo policy of the rules without a policy of their own
+     * @return An AST wrapped with Optional (empty if parsing error)
+     */
+    public Optional<AST<TYPE>> parse(Parser<TYPE> parser, Consumable consumable, MemoPolicy memoPolicy) {
+        if (environment == null) environment = new Environment<>(consumable, parser.depthHint(), memoPolicy);
+        else environment.reset(consumable, memoPolicy);
+        return environment.startWith(parser);
+    }
+
+    /**
+     * Releases the input and the results of the last parse (the stacks and memo tables are kept).
+     */
+    public void reset() {
+        if (environment != null) environment.reset(null, null);
+    }
+
+    /**
+     * @return Returns a free session of the pool of the current thread (or a new session if there is none).
+     */
+    @SuppressWarnings("unchecked")
+    static <TYPE> ParseSession<TYPE> acquire() {
+        ParseSession<?> session = pool.get().poll();
+        return session != null ? (ParseSession<TYPE>) session : new ParseSession<>();
+    }
+
+    /**
+     * Resets the session and returns it to the pool of the current thread.
+     */
+    static void release(ParseSession<?> session) {
+        session.reset();
+        var sessions = pool.get();
+        if (sessions.size() < MAX_POOLED_SESSIONS) sessions.push(session);
+    }
+}
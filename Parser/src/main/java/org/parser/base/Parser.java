@@ -4,10 +4,17 @@ import org.parser.Consumable;
 import org.parser.base.build.Mode;
 import org.parser.tree.AST;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Rules:
@@ -20,14 +27,60 @@ import java.util.regex.Pattern;
 public interface Parser<TYPE> {
     void processWith(Environment<TYPE> environment);
 
+    /**
+     *
+     * @return Returns false if the parser is always successful (e.g. many- and optional-parsers).
+     */
+    default boolean canFail() {
+        return true;
+    }
+
+    /**
+     *
+     * @return Returns the direct subparsers of this parser (used to walk through the parser graph).
+     */
+    default List<Parser<TYPE>> subparsers() {
+        return List.of();
+    }
+
+    /**
+     * Makes the parser immutable (ParserBuilder.build freezes every parser of the built parser graph).
+     * Afterwards the methods that change the parser throw an IllegalStateException, so the parser can be shared
+     * by threads.
+     */
+    default void freeze() {}
+
+    /**
+     * The depth hint is the expected number of parsers that are active at the same time. It is used to presize
+     * the stacks of the environment.
+     * @return Returns the depth hint of this parser.
+     */
+    default int depthHint() {
+        return Environment.DEFAULT_DEPTH_HINT;
+    }
+
     /**
      * Obtains a CharSequence and creates an AST from it.
      * @param consumable Consumable
      * @return An AST wrapped with Optional (empty if parsing error)
      */
     default Optional<AST<TYPE>> parse(Consumable consumable) {
-        Environment<TYPE> environment = new Environment<>(consumable);
-        return environment.startWith(this);
+        return parse(consumable, MemoPolicy.FULL);
+    }
+
+    /**
+     * Obtains a CharSequence and creates an AST from it.
+     * @param consumable Consumable
+     * @param memoPolicy memo policy of the rules without a policy of their own
+     * @return An AST wrapped with Optional (empty if parsing error)
+     */
+    default Optional<AST<TYPE>> parse(Consumable consumable, MemoPolicy memoPolicy) {
+        ParseSession<TYPE> session = ParseSession.acquire();
+        try {
+            return session.parse(this, consumable, memoPolicy);
+        } finally {
+            ParseSession.release(session);
+        }
     }
 
     /**
@@ -39,6 +92,63 @@ public interface Parser<TYPE> {
         return parse(consumableOf(sequence));
     }
 
+    /**
+     * Parses the independent sequences in parallel (on the common fork-join pool).
+     * @param sequences CharSequences
+     * @return Returns the ASTs in the order of the sequences (empty if parsing error).
+     */
+    default List<Optional<AST<TYPE>>> parseAll(Collection<? extends CharSequence> sequences) {
+        return parseAll(sequences.stream(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parses the independent sequences in parallel on the executor (e.g. ParseExecutors.virtualThreads()).
+     * @param sequences CharSequences
+     * @param executor Executor
+     * @return Returns the ASTs in the order of the sequences (empty if parsing error).
+     */
+    default List<Optional<AST<TYPE>>> parseAll(Collection<? extends CharSequence> sequences, Executor executor) {
+        return parseAll(sequences.stream(), executor);
+    }
+
+    /**
+     * Parses the independent sequences in parallel on the executor. An exception of a parse is rethrown.
+     * @param sequences CharSequences
+     * @param executor Executor
+     * @return Returns the ASTs in the order of the sequences (empty if parsing error).
+     */
+    default List<Optional<AST<TYPE>>> parseAll(Stream<? extends CharSequence> sequences, Executor executor) {
+        List<CompletableFuture<Optional<AST<TYPE>>>> parses = sequences
+                .map(sequence -> CompletableFuture.supplyAsync(() -> parse(sequence), executor))
+                .toList();
+        try {
+            return parses.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Parses the remaining input as a sequence of independent records that are separated by the separator
+     * (e.g. "\n" for NDJSON). Each record is parsed on its own (in its own environment) when the stream reaches
+     * it, so no AST is kept after it was consumed, and a parallel stream spreads the records across threads.
+     * An empty element of the stream stands for a record that could not be parsed (completely).
+     * Records that only consist of ignored strings are skipped. The indices of a record start at 0.
+     * For a parallel stream the sequence of the consumable must allow concurrent reads (like a string or a
+     * byte consumable) and the separator must not overlap itself. The indices are ints, so the input of one
+     * consumable is limited to Integer.MAX_VALUE chars (2 GB of a byte consumable); larger inputs have to be split
+     * into several consumables at record boundaries.
+     * @param consumable Consumable (with its whole input available, so not a streaming consumable)
+     * @param separator string between two records
+     * @return Returns a sequential stream of the parsed records (see Stream.parallel).
+     */
+    default Stream<Optional<AST<TYPE>>> parseRecords(Consumable consumable, String separator) {
+        if (separator == null || separator.isEmpty()) throw new IllegalArgumentException("The separator must not be empty.");
+        var records = new RecordSpliterator<>(this, consumable, separator, consumable.index(), consumable.endIndex());
+        return StreamSupport.stream(records, false);
+    }
+
     default Consumable consumableOf(CharSequence sequence) {
         return new Consumable(sequence);
     }
@@ -0,0 +1,593 @@
+package org.parser.base;
+
+import org.parser.Consumable;
+import org.parser.tree.AST;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A parser graph lowered into a flat instruction array. Every instruction is an opcode followed by its int
+ * operands; parsers and atSuccess functions are referenced by their index in the constant table, rules by their
+ * integer id. The program is executed by a loop with explicit int stacks, so no parser objects, callbacks or
+ * closures are created while parsing.
+ * @param <TYPE> type of the AST
+ */
+final class ParserProgram<TYPE> {
+    /**
+     * MATCH terminal: Matches the terminal-parser and pushes its AST.
+     */
+    static final int MATCH = 0;
+    /**
+     * CALL rule: Pushes the memoized result of the rule or jumps to the entry of the rule.
+     */
+    static final int CALL = 1;
+    /**
+     * RETURN: Memoizes the result of the current rule and returns to the caller.
+     */
+    static final int RETURN = 2;
+    /**
+     * CHOICE alternative: Saves the current state. If a later instruction fails, the state is restored and the
+     * execution continues at the alternative.
+     */
+    static final int CHOICE = 3;
+    /**
+     * COMMIT target: Discards the state of the last CHOICE and jumps to the target.
+     */
+    static final int COMMIT = 4;
+    /**
+     * FAIL: Goes back to the alternative of the last CHOICE (the parse fails if there is none).
+     */
+    static final int FAIL = 5;
+    /**
+     * PIN: Pins the current index (like a concat-parser that can still fail).
+     */
+    static final int PIN = 6;
+    /**
+     * UNPIN: Releases the last pinned index.
+     */
+    static final int UNPIN = 7;
+    /**
+     * MARK: Saves the height of the value stack (the first result of a many-parser).
+     */
+    static final int MARK = 8;
+    /**
+     * BUILD_CONCAT atSuccess n: Replaces the last n values by the AST of a concat-parser.
+     */
+    static final int BUILD_CONCAT = 9;
+    /**
+     * BUILD_MANY atSuccess: Replaces the values since the last MARK by the AST of a many-parser.
+     */
+    static final int BUILD_MANY = 10;
+    /**
+     * BUILD_OR atSuccess: Replaces the last value by the AST of an or-parser.
+     */
+    static final int BUILD_OR = 11;
+    /**
+     * PUSH_IGNORE: Pushes the shared ignore AST (the result of an optional-parser that did not match).
+     */
+    static final int PUSH_IGNORE = 12;
+    /**
+     * FOREIGN parser: Runs a parser that cannot be compiled in its own environment.
+     */
+    static final int FOREIGN = 13;
+    /**
+     * HALT: Ends the parse with the last value as result.
+     */
+    static final int HALT = 14;
+
+    /**
+     * Kinds of the entries of the control stack. A choice entry is [kind, alternative, index, number of values,
+     * number of marks, number of pins], a call frame is [kind, return address, start index, rule].
+     */
+    private static final int CHOICE_ENTRY = 0;
+    private static final int CALL_FRAME = 1;
+    private static final int ENTRY_SIZE = 6;
+
+    private final int[] code;
+    private final Object[] constants;
+    /**
+     * Memo name of each rule (null if the results of the rule are not memoized).
+     */
+    private final String[] ruleNames;
+    /**
+     * Memo policy of each rule (null if the rule uses the policy of the parse).
+     */
+    private final MemoPolicy[] rulePolicies;
+    private final int[] ruleEntries;
+
+    private ParserProgram(int[] code, Object[] constants, String[] ruleNames, MemoPolicy[] rulePolicies,
+                          int[] ruleEntries) {
+        this.code = code;
+        this.constants = constants;
+        this.ruleNames = ruleNames;
+        this.rulePolicies = rulePolicies;
+        this.ruleEntries = ruleEntries;
+    }
+
+    /**
+     * Compiles the parsers into one program. The program is a snapshot: later changes of the parser graph are not
+     * visible to it.
+     * @param roots parsers to compile
+     * @param entries receives the entry of each root (in the same order as the roots)
+     * @return Returns the program.
+     */
+    static <TYPE> ParserProgram<TYPE> compile(List<Parser<TYPE>> roots, int[] entries) {
+        Compiler<TYPE> compiler = new Compiler<>();
+        for (int i = 0; i < roots.size(); i++) {
+            entries[i] = compiler.compileRoot(roots.get(i));
+        }
+        return compiler.finish();
+    }
+
+    /**
+     * Runs the program from the entry on the consumable.
+     * @param entry entry of a root
+     * @param consumable Consumable
+     * @param depthHint initial size of the stacks
+     * @param memoPolicy memo policy of the rules without a policy of their own
+     * @param releaseInput whether the consumable may release the input that can no longer be reached
+     * @return Returns the resulting AST (empty if the parse failed).
+     */
+    Optional<AST<TYPE>> run(int entry, Consumable consumable, int depthHint, MemoPolicy memoPolicy,
+                            boolean releaseInput) {
+        return new Machine(consumable, depthHint, memoPolicy, releaseInput).run(entry);
+    }
+
+    int size() {
+        return code.length;
+    }
+
+    int numRules() {
+        return ruleEntries.length;
+    }
+
+    /**
+     * The state of one parse.
+     */
+    private final class Machine {
+        private final Consumable consumable;
+        private final boolean releaseInput;
+        private final MemoPolicy memoPolicy;
+        private final MemoTables<TYPE> memo;
+        private Object[] values;
+        private int numValues;
+        private int[] marks;
+        private int numMarks;
+        /**
+         * Indices the pinned concat-parsers may go back to (the input before them must not be released).
+         */
+        private int[] pins;
+        private int numPins;
+        private int[] control;
+        private int controlSize;
+        private int numChoices;
+        private int evictedBefore;
+        private int pc;
+
+        Machine(Consumable consumable, int depthHint, MemoPolicy memoPolicy, boolean releaseInput) {
+            this.consumable = consumable;
+            this.releaseInput = releaseInput;
+            this.memoPolicy = memoPolicy;
+            this.memo = new MemoTables<>(memoPolicy);
+            this.values = new Object[Math.max(depthHint, 1)];
+            this.marks = new int[16];
+            this.pins = new int[16];
+            this.control = new int[ENTRY_SIZE * Math.max(depthHint, 1)];
+        }
+
+        @SuppressWarnings("unchecked")
+        Optional<AST<TYPE>> run(int entry) {
+            pc = entry;
+            while (true) {
+                switch (code[pc]) {
+                    case MATCH -> {
+                        var terminal = (TerminalParser<TYPE>) constants[code[pc + 1]];
+                        if (!proceed(terminal.parseTerminal(consumable), pc + 2)) return failed();
+                    }
+                    case CALL -> {
+                        int rule = code[pc + 1];
+                        int start = consumable.index();
+                        MemoTable<TYPE> table = ruleNames[rule] != null ? memo.tableOf(rulePolicies[rule]) : null;
+                        int slot = table != null ? table.find(start, rule) : -1;
+                        if (slot >= 0) {
+                            AST<TYPE> result = table.resultAt(slot);
+                            if (!Environment.isFailure(result)) consumable.gotoIndex(table.endAt(slot));
+                            if (!proceed(result, pc + 2)) return failed();
+                        } else {
+                            pushControl(CALL_FRAME, pc + 2, start, rule);
+                            pc = ruleEntries[rule];
+                        }
+                    }
+                    case RETURN -> {
+                        controlSize -= ENTRY_SIZE;
+                        int rule = control[controlSize + 3];
+                        if (ruleNames[rule] != null) {
+                            memo.tableOf(rulePolicies[rule])
+                                    .put(control[controlSize + 2], rule, consumable.index(), value(numValues - 1));
+                        }
+                        pc = control[controlSize + 1];
+                    }
+                    case CHOICE -> {
+                        pushControl(CHOICE_ENTRY, code[pc + 1], consumable.index(), numValues);
+                        numChoices++;
+                        pc += 2;
+                    }
+                    case COMMIT -> {
+                        controlSize -= ENTRY_SIZE;
+                        numChoices--;
+                        compactIfUnpinned();
+                        pc = code[pc + 1];
+                    }
+                    case FAIL -> {
+                        if (!fail()) return failed();
+                    }
+                    case PIN -> {
+                        if (numPins == pins.length) pins = Arrays.copyOf(pins, numPins * 2);
+                        pins[numPins++] = consumable.index();
+                        pc += 1;
+                    }
+                    case UNPIN -> {
+                        numPins--;
+                        compactIfUnpinned();
+                        pc += 1;
+                    }
+                    case MARK -> {
+                        if (numMarks == marks.length) marks = Arrays.copyOf(marks, numMarks * 2);
+                        marks[numMarks++] = numValues;
+                        pc += 1;
+                    }
+                    case BUILD_CONCAT -> {
+                        var atSuccess = (Function<List<AST<TYPE>>, AST<TYPE>>) constants[code[pc + 1]];
+                        if (!proceed(build(atSuccess, numValues - code[pc + 2], true), pc + 3)) return failed();
+                    }
+                    case BUILD_MANY -> {
+                        var atSuccess = (Function<List<AST<TYPE>>, AST<TYPE>>) constants[code[pc + 1]];
+                        if (!proceed(build(atSuccess, marks[--numMarks], false), pc + 2)) return failed();
+                    }
+                    case BUILD_OR -> {
+                        var atSuccess = (Function<AST<TYPE>, AST<TYPE>>) constants[code[pc + 1]];
+                        AST<TYPE> ast = value(--numValues);
+                        values[numValues] = null;
+                        AST<TYPE> result = Environment.withSpan(atSuccess.apply(ast),
+                                ast.getStart(), ast.getEnd(), consumable.index());
+                        if (!proceed(result != null ? result.setIgnore(ast.shouldIgnore()) : null, pc + 2)) {
+                            return failed();
+                        }
+                    }
+                    case PUSH_IGNORE -> {
+                        push(AST.ignoreNode());
+                        pc += 1;
+                    }
+                    case FOREIGN -> {
+                        var parser = (Parser<TYPE>) constants[code[pc + 1]];
+                        var result = new Environment<TYPE>(consumable, parser.depthHint(), memoPolicy, false).startWith(parser);
+                        if (!proceed(result.orElse(null), pc + 2)) return failed();
+                    }
+                    case HALT -> {
+                        return Optional.of(value(numValues - 1));
+                    }
+                    default -> throw new IllegalStateException("Unknown opcode " + code[pc] + " at " + pc + ".");
+                }
+            }
+        }
+
+        /**
+         * Pushes the result and continues at next if the result is no failure, otherwise the machine fails.
+         * @return Returns false if the parse failed.
+         */
+        private boolean proceed(AST<TYPE> result, int next) {
+            if (Environment.isFailure(result)) return fail();
+
+            push(result);
+            pc = next;
+            return true;
+        }
+
+        /**
+         * Unwinds the control stack to the last choice (the failure of every rule on the way is memoized) and
+         * restores the state of the choice.
+         * @return Returns false if there is no choice left, so the parse failed.
+         */
+        private boolean fail() {
+            while (controlSize > 0) {
+                controlSize -= ENTRY_SIZE;
+                int entry = controlSize;
+                if (control[entry] == CALL_FRAME) {
+                    int rule = control[entry + 3];
+                    int start = control[entry + 2];
+                    if (ruleNames[rule] != null) {
+                        memo.tableOf(rulePolicies[rule]).put(start, rule, start, Environment.failure());
+                    }
+                } else {
+                    consumable.gotoIndex(control[entry + 2]);
+                    Arrays.fill(values, control[entry + 3], numValues, null);
+                    numValues = control[entry + 3];
+                    numMarks = control[entry + 4];
+                    numPins = control[entry + 5];
+                    numChoices--;
+                    compactIfUnpinned();
+                    pc = control[entry + 1];
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Like a failed concat-parser, the failed parse goes back to the index of the outermost pinned concat-parser.
+         */
+        private Optional<AST<TYPE>> failed() {
+            if (numPins > 0) consumable.gotoIndex(pins[0]);
+            return Optional.empty();
+        }
+
+        /**
+         * Replaces the values from the index on by the AST of atSuccess (spans as in the concat- and many-parser).
+         * If atSuccess returns null, the values stay (the failure restores the values of the last choice).
+         * @param withoutIgnored whether the ASTs with the ignore bit are not passed to atSuccess
+         */
+        private AST<TYPE> build(Function<List<AST<TYPE>>, AST<TYPE>> atSuccess, int from, boolean withoutIgnored) {
+            ArrayList<AST<TYPE>> ASTs = new ArrayList<>(numValues - from);
+            int start = -1;
+            int end = -1;
+            for (int i = from; i < numValues; i++) {
+                AST<TYPE> ast = value(i);
+                if (ast.hasSpan()) {
+                    if (start < 0) start = ast.getStart();
+                    end = ast.getEnd();
+                }
+                if (!withoutIgnored || !ast.shouldIgnore()) ASTs.add(ast);
+            }
+            AST<TYPE> result = atSuccess.apply(ASTs);
+            if (result == null) return null;
+
+            Arrays.fill(values, from, numValues, null);
+            numValues = from;
+            return Environment.withSpan(result, start, end, consumable.index());
+        }
+
+        /**
+         * If no choice and no pinned concat-parser can go back, the input before the current index is released
+         * (see Environment.compactionPoint).
+         */
+        private void compactIfUnpinned() {
+            if (numChoices > 0 || numPins > 0) return;
+
+            int point = consumable.index();
+            if (releaseInput) consumable.releaseBefore(point);
+            if (point - evictedBefore >= Environment.CACHE_EVICTION_INTERVAL) {
+                memo.removeBefore(point);
+                evictedBefore = point;
+            }
+        }
+
+        private void push(AST<TYPE> ast) {
+            if (numValues == values.length) values = Arrays.copyOf(values, numValues * 2);
+            values[numValues++] = ast;
+        }
+
+        @SuppressWarnings("unchecked")
+        private AST<TYPE> value(int i) {
+            return (AST<TYPE>) values[i];
+        }
+
+        private void pushControl(int kind, int address, int index, int value) {
+            if (controlSize == control.length) control = Arrays.copyOf(control, controlSize * 2);
+            control[controlSize] = kind;
+            control[controlSize + 1] = address;
+            control[controlSize + 2] = index;
+            control[controlSize + 3] = value;
+            control[controlSize + 4] = numMarks;
+            control[controlSize + 5] = numPins;
+            controlSize += ENTRY_SIZE;
+        }
+    }
+
+    /**
+     * Lowers the parser graph. The roots are compiled inline, a placeholder becomes a call of the rule of its
+     * name and the bodies of the rules are compiled afterwards. A parser that contains itself without a placeholder
+     * becomes an anonymous rule (its results are not memoized).
+     */
+    private static final class Compiler<TYPE> {
+        private int[] code = new int[256];
+        private int size = 0;
+        private final List<Object> constants = new ArrayList<>();
+        private final Map<Object, Integer> constantIndices = new IdentityHashMap<>();
+        private final Map<Parser<TYPE>, Integer> rules = new IdentityHashMap<>();
+        private final List<String> ruleNames = new ArrayList<>();
+        private final List<MemoPolicy> rulePolicies = new ArrayList<>();
+        private final List<Parser<TYPE>> ruleBodies = new ArrayList<>();
+        /**
+         * Parsers that are currently compiled inline.
+         */
+        private final Set<Parser<TYPE>> path = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        int compileRoot(Parser<TYPE> parser) {
+            int entry = size;
+            compile(parser);
+            emit(HALT);
+            return entry;
+        }
+
+        ParserProgram<TYPE> finish() {
+            List<Integer> entries = new ArrayList<>();
+            for (int rule = 0; rule < ruleBodies.size(); rule++) {
+                entries.add(size);
+                compile(ruleBodies.get(rule));
+                emit(RETURN);
+            }
+            return new ParserProgram<>(Arrays.copyOf(code, size), constants.toArray(),
+                    ruleNames.toArray(String[]::new), rulePolicies.toArray(MemoPolicy[]::new), entries.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        private void compile(Parser<TYPE> parser) {
+            if (parser == null) {
+                emit(FAIL);
+            } else if (parser.getClass() == PlaceholderParser.class) {
+                var placeholder = (PlaceholderParser<TYPE>) parser;
+                if (placeholder.parser() == null) emit(FAIL);
+                else if (placeholder.isLeftRecursive()) emit(FOREIGN, constant(placeholder));
+                else emit(CALL, ruleOf(placeholder, placeholder.name(), placeholder.memoPolicy(), placeholder.parser()));
+            } else if (path.contains(parser)) {
+                emit(CALL, ruleOf(parser, null, null, parser));
+            } else {
+                path.add(parser);
+                compileInline(parser);
+                path.remove(parser);
+            }
+        }
+
+        /**
+         * Only the parsers of this package are compiled (subclasses could change the processing), every other
+         * parser is run as a foreign parser.
+         */
+        private void compileInline(Parser<TYPE> parser) {
+            Class<?> type = parser.getClass();
+            if (parser instanceof TerminalParser<TYPE> terminal) {
+                emit(MATCH, constant(terminal));
+            } else if (type == ConcatParser.class) {
+                compileConcat((ConcatParser<TYPE>) parser);
+            } else if (type == OrParser.class) {
+                compileOr((OrParser<TYPE>) parser);
+            } else if (type == PrefixChoiceParser.class) {
+                compilePrefixChoice((PrefixChoiceParser<TYPE>) parser);
+            } else if (type == ManyParser.class) {
+                var many = (ManyParser<TYPE>) parser;
+                emit(MARK);
+                int loop = emit(CHOICE, 0);
+                compile(many.parser());
+                emit(COMMIT, loop);
+                patch(loop, size);
+                emit(BUILD_MANY, constant(many.atSuccess()));
+            } else if (type == OptionalParser.class) {
+                int choice = emit(CHOICE, 0);
+                compile(((OptionalParser<TYPE>) parser).parser());
+                int commit = emit(COMMIT, 0);
+                patch(choice, size);
+                emit(PUSH_IGNORE);
+                patch(commit, size);
+            } else {
+                emit(FOREIGN, constant(parser));
+            }
+        }
+
+        /**
+         * The concat is pinned until its last subparser that can fail succeeded (like the concat-parser).
+         */
+        private void compileConcat(ConcatParser<TYPE> concat) {
+            List<Parser<TYPE>> parsers = concat.subparsers();
+            int lastFallibleIndex = -1;
+            for (int i = 0; i < parsers.size(); i++) {
+                if (parsers.get(i).canFail()) lastFallibleIndex = i;
+            }
+
+            if (lastFallibleIndex >= 0) emit(PIN);
+            for (int i = 0; i < parsers.size(); i++) {
+                compile(parsers.get(i));
+                if (i == lastFallibleIndex) emit(UNPIN);
+            }
+            emit(BUILD_CONCAT, constant(concat.atSuccess()), parsers.size());
+        }
+
+        /**
+         * Every alternative except the last one is tried under a choice that falls through to the next alternative.
+         */
+        private void compileOr(OrParser<TYPE> or) {
+            List<Parser<TYPE>> parsers = or.subparsers();
+            if (parsers.isEmpty()) {
+                emit(FAIL);
+                return;
+            }
+
+            List<Integer> commits = new ArrayList<>();
+            for (int i = 0; i < parsers.size() - 1; i++) {
+                int choice = emit(CHOICE, 0);
+                compile(parsers.get(i));
+                commits.add(emit(COMMIT, 0));
+                patch(choice, size);
+            }
+            compile(parsers.get(parsers.size() - 1));
+            commits.forEach(commit -> patch(commit, size));
+            emit(BUILD_OR, constant(or.atSuccess()));
+        }
+
+        /**
+         * The prefix is parsed once, then the rests of the alternatives are tried under choices that start after
+         * the prefix. The BUILD_CONCAT of an alternative also takes the values of the prefix; if its atSuccess
+         * returns null, the values of the prefix stay for the next alternative.
+         */
+        private void compilePrefixChoice(PrefixChoiceParser<TYPE> prefixChoice) {
+            List<ConcatParser<TYPE>> alternatives = prefixChoice.alternatives();
+            int prefixLength = prefixChoice.prefixLength();
+            emit(PIN);
+            for (Parser<TYPE> parser : alternatives.get(0).subparsers().subList(0, prefixLength)) {
+                compile(parser);
+            }
+
+            List<Integer> commits = new ArrayList<>();
+            for (int i = 0; i < alternatives.size(); i++) {
+                boolean last = i == alternatives.size() - 1;
+                int choice = last ? -1 : emit(CHOICE, 0);
+                var parsers = alternatives.get(i).subparsers();
+                for (Parser<TYPE> parser : parsers.subList(prefixLength, parsers.size())) {
+                    compile(parser);
+                }
+                emit(BUILD_CONCAT, constant(alternatives.get(i).atSuccess()), parsers.size());
+                if (!last) {
+                    commits.add(emit(COMMIT, 0));
+                    patch(choice, size);
+                }
+            }
+            commits.forEach(commit -> patch(commit, size));
+            emit(UNPIN);
+        }
+
+        private int ruleOf(Parser<TYPE> key, String name, MemoPolicy policy, Parser<TYPE> body) {
+            Integer rule = rules.get(key);
+            if (rule == null) {
+                rule = ruleBodies.size();
+                rules.put(key, rule);
+                ruleNames.add(name);
+                rulePolicies.add(policy);
+                ruleBodies.add(body);
+            }
+            return rule;
+        }
+
+        private int constant(Object constant) {
+            Integer index = constantIndices.get(constant);
+            if (index == null) {
+                index = constants.size();
+                constantIndices.put(constant, index);
+                constants.add(constant);
+            }
+            return index;
+        }
+
+        /**
+         * @return Returns the address of the instruction.
+         */
+        private int emit(int opcode, int ... operands) {
+            if (size + 1 + operands.length > code.length) code = Arrays.copyOf(code, 2 * code.length);
+            int address = size;
+            code[size++] = opcode;
+            for (int operand : operands) code[size++] = operand;
+            return address;
+        }
+
+        /**
+         * Sets the first operand of the instruction at the address.
+         */
+        private void patch(int address, int operand) {
+            code[address + 1] = operand;
+        }
+    }
+}
@@ -1,40 +1,187 @@
 package org.parser.base;
 
 import org.parser.Consumable;
+import org.parser.tree.AST;
 
-import java.util.Optional;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PlaceholderParser<TYPE> implements Parser<TYPE> {
+    /**
+     * Next free rule id. The ids are unique across all grammars, so parsers of different pools can be mixed.
+     */
+    private static final AtomicInteger nextRuleId = new AtomicInteger();
+
     private String name;
     private Parser<TYPE> parser;
+    /**
+     * Id of the rule (the key of the memo entries of this placeholder).
+     */
+    private int ruleId;
+    /**
+     * Memo policy of the rule (null if the policy of the parse is used). The memo policy does not change the
+     * results of the parser, so it may still be changed after the parser is frozen (e.g. by a MemoPlan).
+     */
+    private volatile MemoPolicy memoPolicy;
+    /**
+     * Rule ids of the rules of the left-recursive cycle of the rule (null if the rule is not left-recursive).
+     */
+    private int[] cycle;
+    /**
+     * Whether the rule is a leader of its left-recursive cycle. A leader always grows its result (see growSeed),
+     * the other rules of the cycle only if no rule of the cycle grows at the same position.
+     */
+    private boolean leader;
+    private boolean frozen;
 
     public PlaceholderParser() {
         this.name = null;
         this.parser = null;
+        this.ruleId = -1;
+        this.memoPolicy = null;
+        this.cycle = null;
+        this.leader = false;
+        this.frozen = false;
+    }
+
+    /**
+     * Reserves a range of rule ids.
+     * @param count number of ids
+     * @return Returns the first id of the range.
+     */
+    public static int reserveRuleIds(int count) {
+        return nextRuleId.getAndAdd(count);
     }
 
     @Override
     public void processWith(Environment<TYPE> environment) {
-        Consumable.Mark startMark = environment.createConsumableMark();
-        if (environment.hasInCache(startMark, name)) {
-            environment.resultStack().push(environment.getFromCache(startMark, name));
+        if (cycle != null) {
+            processLeftRecursive(environment);
+            return;
+        }
+
+        int startMark = environment.createConsumableMark();
+        if (environment.pushFromCache(startMark, ruleId, memoPolicy)) {
+            environment.profileHit(name);
         } else {
             environment.executeAndThenCall(parser, (v) -> handleAfterExecution(environment, startMark));
         }
     }
 
-    private void handleAfterExecution(Environment<TYPE> environment, Consumable.Mark startMark) {
+    private void handleAfterExecution(Environment<TYPE> environment, int startMark) {
         if (parser == null) {
-            environment.resultStack().push(Optional.empty());
+            environment.resultStack().push(Environment.failure());
         } else {
-            environment.putToCache(startMark, name, environment.resultStack().peek());
+            environment.putToCache(startMark, ruleId, memoPolicy, environment.resultStack().peek());
+            environment.profileStore(name);
+        }
+    }
+
+    /**
+     * The rule of a left-recursive cycle that is called first at a position grows its result like a seed:
+     * The first evaluation sees the failure of the rule as its own result (so it takes a non-left-recursive
+     * alternative), every further evaluation sees the result of the evaluation before. The growing stops as soon as
+     * an evaluation does not get further than the one before. While a rule grows, the other rules of the cycle are
+     * evaluated without memoization at that position (except the leaders, which break the inner cycles),
+     * since their results change with the seed.
+     */
+    private void processLeftRecursive(Environment<TYPE> environment) {
+        int startMark = environment.createConsumableMark();
+        if (environment.pushGrownResult(startMark, ruleId)) return;
+        if (parser == null) {
+            environment.resultStack().push(Environment.failure());
+            return;
+        }
+        if (!leader && environment.isGrowing(startMark, cycle)) {
+            parser.processWith(environment);
+            return;
         }
+
+        environment.pinConsumableMark();
+        environment.beginGrowth(startMark, ruleId);
+        environment.executeAndThenCall(parser, (consumable) -> growSeed(environment, consumable, startMark));
+    }
+
+    private void growSeed(Environment<TYPE> environment, Consumable consumable, int startMark) {
+        AST<TYPE> result = environment.resultStack().pop();
+        if (environment.growSeed(startMark, ruleId, cycle, result)) {
+            consumable.gotoIndex(startMark);
+            environment.executeAndThenCall(parser, (v) -> growSeed(environment, consumable, startMark));
+        } else {
+            environment.endGrowth(startMark, ruleId);
+            environment.releaseConsumableMark();
+        }
+    }
+
+    String name() {
+        return name;
+    }
+
+    Parser<TYPE> parser() {
+        return parser;
+    }
+
+    MemoPolicy memoPolicy() {
+        return memoPolicy;
+    }
+
+    @Override
+    public int depthHint() {
+        return parser != null ? parser.depthHint() : Environment.DEFAULT_DEPTH_HINT;
+    }
+
+    @Override
+    public List<Parser<TYPE>> subparsers() {
+        return parser != null ? List.of(parser) : List.of();
     }
 
     public void setParserIfNull(String name, Parser<TYPE> parser) {
+        setParserIfNull(name, reserveRuleIds(1), parser);
+    }
+
+    /**
+     * Sets the parser of the rule with the name and the id (if no parser is set yet).
+     * @param name rule name
+     * @param ruleId rule id (see reserveRuleIds)
+     * @param parser parser of the rule
+     */
+    public void setParserIfNull(String name, int ruleId, Parser<TYPE> parser) {
+        if (frozen) throw new IllegalStateException("The placeholder-parser is frozen.");
         if (this.parser == null) {
             this.name = name;
+            this.ruleId = ruleId;
             this.parser = parser;
         }
     }
+
+    /**
+     * Marks the rule as part of a left-recursive cycle (set by the ParserBuilder).
+     * @param leader whether the rule is a leader of the cycle
+     * @param cycle all rules of the cycle
+     */
+    public void setLeftRecursion(boolean leader, Collection<PlaceholderParser<TYPE>> cycle) {
+        if (frozen) throw new IllegalStateException("The placeholder-parser is frozen.");
+        this.leader = leader;
+        this.cycle = cycle.stream().mapToInt(placeholder -> placeholder.ruleId).toArray();
+    }
+
+    /**
+     * @return Returns whether the rule is part of a left-recursive cycle.
+     */
+    public boolean isLeftRecursive() {
+        return cycle != null;
+    }
+
+    @Override
+    public void freeze() {
+        frozen = true;
+    }
+
+    /**
+     * @param memoPolicy memo policy of the rule (null if the policy of the parse should be used)
+     */
+    public void setMemoPolicy(MemoPolicy memoPolicy) {
+        this.memoPolicy = memoPolicy;
+    }
 }
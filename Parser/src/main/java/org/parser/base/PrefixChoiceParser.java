@@ -0,0 +1,166 @@
+package org.parser.base;
+
+import org.parser.tree.AST;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adjacent alternatives of an or-parser that start with the same parsers (see OrParser.factorPrefixes).
+ * The common prefix is parsed once, then the rests of the alternatives are tried in their order. The AST of the
+ * successful alternative is created by its concat-parser from the results of the prefix and of its rest,
+ * so the ASTs are the same as with the alternatives themselves.
+ * @param <TYPE> type of the AST
+ */
+public final class PrefixChoiceParser<TYPE> implements Parser<TYPE> {
+    private static final String errorMsg = "Fail at PrefixChoice: Internal error. Should not happen.";
+    /**
+     * The alternatives (each one starts with the prefix).
+     */
+    private final List<ConcatParser<TYPE>> alternatives;
+    /**
+     * Number of subparsers of the prefix.
+     */
+    private final int prefixLength;
+    private final List<Parser<TYPE>> subparsers;
+
+    PrefixChoiceParser(List<ConcatParser<TYPE>> alternatives, int prefixLength) {
+        this.alternatives = List.copyOf(alternatives);
+        this.prefixLength = prefixLength;
+        this.subparsers = List.copyOf(alternatives);
+    }
+
+    /**
+     * @return Returns whether both parsers create the same results (the same parser or two regex-parsers
+     * with the same pattern and the same atSuccess function).
+     */
+    static <TYPE> boolean isSameParser(Parser<TYPE> parser, Parser<TYPE> other) {
+        if (parser == other) return true;
+        return parser.getClass() == RegExParser.class && other.getClass() == RegExParser.class
+                && ((RegExParser<TYPE>) parser).isSameMatcher((RegExParser<TYPE>) other);
+    }
+
+    @Override
+    public void processWith(Environment<TYPE> environment) {
+        int mark = environment.pinConsumableMark();
+        processPrefixRec(environment, mark, 0);
+    }
+
+    private void processPrefixRec(Environment<TYPE> environment, int mark, int index) {
+        if (index == prefixLength) {
+            processAlternativeRec(environment, mark, environment.createConsumableMark(), 0, index);
+            return;
+        }
+
+        environment.executeAndThenCall(alternatives.get(0).subparsers().get(index), (consumable) -> {
+            assert !environment.resultStack().isEmpty() : errorMsg;
+
+            if (!Environment.isFailure(environment.resultStack().peek())) {
+                processPrefixRec(environment, mark, index + 1);
+            } else {
+                popResults(environment, index + 1);
+                fail(environment, mark);
+            }
+        });
+    }
+
+    /**
+     * Parses the rest of the alternative (the results of the prefix are on the result stack).
+     * @param restMark index after the prefix
+     * @param alternative index of the alternative
+     * @param index index of the next subparser of the alternative
+     */
+    private void processAlternativeRec(Environment<TYPE> environment, int mark, int restMark, int alternative, int index) {
+        if (alternative == alternatives.size()) {
+            popResults(environment, prefixLength);
+            fail(environment, mark);
+            return;
+        }
+
+        var parsers = alternatives.get(alternative).subparsers();
+        if (index == parsers.size()) {
+            if (aggregateResults(environment, alternative)) {
+                environment.releaseConsumableMark();
+            } else {
+                environment.gotoConsumableMark(restMark);
+                processAlternativeRec(environment, mark, restMark, alternative + 1, prefixLength);
+            }
+            return;
+        }
+
+        environment.executeAndThenCall(parsers.get(index), (consumable) -> {
+            assert !environment.resultStack().isEmpty() : errorMsg;
+
+            if (!Environment.isFailure(environment.resultStack().peek())) {
+                processAlternativeRec(environment, mark, restMark, alternative, index + 1);
+            } else {
+                popResults(environment, index - prefixLength + 1);
+                consumable.gotoIndex(restMark);
+                processAlternativeRec(environment, mark, restMark, alternative + 1, prefixLength);
+            }
+        });
+    }
+
+    /**
+     * Creates the AST of the alternative like its concat-parser does. If the atSuccess function of the
+     * alternative returns null, the alternative fails and the results of the prefix stay on the result stack.
+     * @return Returns whether the alternative succeeded.
+     */
+    private boolean aggregateResults(Environment<TYPE> environment, int alternative) {
+        var concat = alternatives.get(alternative);
+        int size = concat.size();
+        List<AST<TYPE>> results = new ArrayList<>(size);
+        ArrayList<AST<TYPE>> ASTs = new ArrayList<>(size);
+        int start = -1;
+        int end = -1;
+        for (int i = 0; i < size; i++) {
+            var ast = environment.resultStack().pop();
+            assert !Environment.isFailure(ast) : errorMsg;
+
+            if (ast.hasSpan()) {
+                if (end < 0) end = ast.getEnd();
+                start = ast.getStart();
+            }
+            results.add(ast);
+            if (!ast.shouldIgnore()) ASTs.add(0, ast);
+        }
+
+        AST<TYPE> result = concat.atSuccess().apply(ASTs);
+        if (result == null) {
+            for (int i = size - 1; i >= size - prefixLength; i--) {
+                environment.resultStack().push(results.get(i));
+            }
+            return false;
+        }
+        environment.resultStack().push(environment.withSpan(result, start, end));
+        return true;
+    }
+
+    private void popResults(Environment<TYPE> environment, int count) {
+        for (int i = 0; i < count; i++) {
+            environment.resultStack().pop();
+        }
+    }
+
+    private void fail(Environment<TYPE> environment, int mark) {
+        environment.gotoConsumableMark(mark);
+        environment.releaseConsumableMark();
+        environment.resultStack().push(Environment.failure());
+    }
+
+    List<ConcatParser<TYPE>> alternatives() {
+        return alternatives;
+    }
+
+    int prefixLength() {
+        return prefixLength;
+    }
+
+    /**
+     * @return Returns the alternatives (they contain all subparsers of this parser).
+     */
+    @Override
+    public List<Parser<TYPE>> subparsers() {
+        return subparsers;
+    }
+}
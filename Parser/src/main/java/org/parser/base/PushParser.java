@@ -0,0 +1,103 @@
+package org.parser.base;
+
+import org.parser.IgnoreProfile;
+import org.parser.PushConsumable;
+import org.parser.tree.AST;
+
+import java.nio.CharBuffer;
+import java.util.Optional;
+
+/**
+ * Parses input that is pushed in chunks (e.g. the chunks of a non-blocking channel) instead of pulled from
+ * a reader. Every feed continues the parse until it needs input that was not fed yet, so no thread blocks
+ * while waiting for the next chunk. A push parser parses one input and must only be used by one thread at a time.
+ * Compiled parsers (see ParserPool.compile) are not supported: their program cannot be suspended, so it would
+ * restart from the beginning of the input after every feed and the whole input would be kept.
+ * @param <TYPE> type of the AST
+ */
+public final class PushParser<TYPE> {
+    public enum Status {
+        /**
+         * The parse is suspended until more input is fed (or the input is finished).
+         */
+        NEED_MORE_INPUT,
+        SUCCESS,
+        FAILURE
+    }
+
+    private final PushConsumable consumable;
+    private final Environment<TYPE> environment;
+    private Status status;
+    private AST<TYPE> result;
+
+    public PushParser(Parser<TYPE> parser, IgnoreProfile ignoreProfile) {
+        this(parser, ignoreProfile, MemoPolicy.FULL);
+    }
+
+    /**
+     * @param parser Parser
+     * @param ignoreProfile ignore profile of the input
+     * @param memoPolicy memo policy of the rules without a policy of their own
+     * @throws IllegalArgumentException if the parser is a compiled parser
+     */
+    public PushParser(Parser<TYPE> parser, IgnoreProfile ignoreProfile, MemoPolicy memoPolicy) {
+        if (parser instanceof CompiledParser) {
+            throw new IllegalArgumentException("A compiled parser cannot be used as a push parser.");
+        }
+        this.consumable = new PushConsumable(ignoreProfile);
+        this.environment = new Environment<>(consumable, parser.depthHint(), memoPolicy);
+        this.status = Status.NEED_MORE_INPUT;
+        this.result = null;
+        environment.begin(parser);
+    }
+
+    /**
+     * Feeds the remaining chars of the chunk and continues the parse (the chars are copied,
+     * so the chunk can be reused). After the parse finished, further chunks are only appended to the input.
+     * @param chunk chars
+     * @return Returns the status of the parse.
+     */
+    public Status feed(CharBuffer chunk) {
+        consumable.feed(chunk);
+        return proceed();
+    }
+
+    public Status feed(CharSequence chunk) {
+        return feed(CharBuffer.wrap(chunk));
+    }
+
+    /**
+     * Marks the end of the input and finishes the parse.
+     * @return Returns the status of the parse (SUCCESS or FAILURE).
+     */
+    public Status finish() {
+        consumable.finish();
+        return proceed();
+    }
+
+    public Status status() {
+        return status;
+    }
+
+    /**
+     * @return Returns the AST of the parse (empty if the parse did not succeed (yet)).
+     */
+    public Optional<AST<TYPE>> result() {
+        return Optional.ofNullable(result);
+    }
+
+    /**
+     * @return Returns the consumable of the input (e.g. to check whether the parse consumed all input).
+     */
+    public PushConsumable consumable() {
+        return consumable;
+    }
+
+    private Status proceed() {
+        if (status == Status.NEED_MORE_INPUT && environment.resume()) {
+            result = environment.result().orElse(null);
+            status = result != null ? Status.SUCCESS : Status.FAILURE;
+        }
+        return status;
+    }
+}
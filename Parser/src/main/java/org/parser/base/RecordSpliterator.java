@@ -0,0 +1,94 @@
+package org.parser.base;
+
+import org.parser.Consumable;
+import org.parser.tree.AST;
+
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the records of a consumable that are separated by a separator (see Parser.parseRecords).
+ * Every record is parsed on its own, so the records of a parallel stream are parsed on different threads.
+ * A split cuts the range at the first separator after its middle.
+ * @param <TYPE> type of the AST
+ */
+final class RecordSpliterator<TYPE> implements Spliterator<Optional<AST<TYPE>>> {
+    /**
+     * Ranges with fewer chars are not split (parsing a few records is cheaper than forking a task).
+     */
+    private static final int MIN_SPLIT_SIZE = 1 << 14;
+
+    private final Parser<TYPE> parser;
+    private final Consumable consumable;
+    private final String separator;
+    /**
+     * Length of the separator in the sequence (e.g. its number of UTF-8 bytes, see Consumable.lengthOf).
+     */
+    private final int separatorLength;
+    /**
+     * Range of the remaining records (from is the start of the next record).
+     */
+    private int from;
+    private final int to;
+
+    RecordSpliterator(Parser<TYPE> parser, Consumable consumable, String separator, int from, int to) {
+        this.parser = parser;
+        this.consumable = consumable;
+        this.separator = separator;
+        this.separatorLength = consumable.lengthOf(separator);
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Parses the next record. Records that only consist of ignored strings are skipped.
+     */
+    @Override
+    public boolean tryAdvance(Consumer<? super Optional<AST<TYPE>>> action) {
+        while (from < to) {
+            int boundary = consumable.indexOf(separator, from, to);
+            Consumable record = consumable.slice(from, boundary >= 0 ? boundary : to);
+            from = boundary >= 0 ? boundary + separatorLength : to;
+
+            if (!record.isEmpty()) {
+                action.accept(parse(record));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A record is only parsed successfully if the whole record was consumed.
+     */
+    private Optional<AST<TYPE>> parse(Consumable record) {
+        Optional<AST<TYPE>> ast = parser.parse(record);
+        return record.isEmpty() ? ast : Optional.empty();
+    }
+
+    @Override
+    public Spliterator<Optional<AST<TYPE>>> trySplit() {
+        if (to - from < 2 * MIN_SPLIT_SIZE) return null;
+
+        int boundary = consumable.indexOf(separator, from + (to - from) / 2, to);
+        if (boundary < 0) return null;
+
+        var prefix = new RecordSpliterator<>(parser, consumable, separator, from, boundary + separatorLength);
+        from = boundary + separatorLength;
+        return prefix;
+    }
+
+    /**
+     * @return Returns the number of remaining chars (an upper bound of the number of records).
+     */
+    @Override
+    public long estimateSize() {
+        return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+}
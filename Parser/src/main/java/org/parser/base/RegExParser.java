@@ -1,20 +1,43 @@
 package org.parser.base;
 
 import org.parser.Consumable;
+import org.parser.RegexDfa;
 import org.parser.tree.AST;
 
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 
 /**
  * Regular-Expression Parser
  */
-public class RegExParser<TYPE> implements Parser<TYPE> {
+public class RegExParser<TYPE> implements TerminalParser<TYPE> {
+    /**
+     * Characters that have a special meaning in a regular expression (if not escaped).
+     */
+    private static final String META_CHARACTERS = "\\.[]{}()*+?^$|";
+    private static final AtomicInteger nextTerminalId = new AtomicInteger();
+
+    /**
+     * Unique id of the terminal (used to look up its matches in a token table, see Lexer).
+     */
+    private final int terminalId;
+
     /**
      * RegEx-Pattern
      */
     private final Pattern pattern;
+    /**
+     * The string the pattern matches if the pattern is a plain literal (e.g. "\\{" or "goto"), otherwise null.
+     * A literal is compared directly with the sequence without using the regex engine.
+     */
+    private final String literal;
+    /**
+     * DFA of the pattern if the pattern is not a literal and can be compiled (see RegexDfa), otherwise null.
+     * The pattern is only used by java.util.regex if there is no DFA.
+     */
+    private final RegexDfa dfa;
     /**
      * This function is called when the RegEx pattern has been successfully matched.
      * This method should then eventually return the resulting AST.
@@ -22,19 +45,88 @@ public class RegExParser<TYPE> implements Parser<TYPE> {
     private final Function<Consumable.Match, AST<TYPE>> atSuccess;
 
     public RegExParser(Pattern pattern, Function<Consumable.Match, AST<TYPE>> atSuccess) {
+        this.terminalId = nextTerminalId.getAndIncrement();
         this.pattern = pattern != null ? pattern : Pattern.compile("");
+        this.literal = literalOf(this.pattern);
+        this.dfa = literal == null ? RegexDfa.compile(this.pattern) : null;
         this.atSuccess = atSuccess != null ? atSuccess : Parser.basicHideAtSuccess();
     }
 
     /**
      * Checks if the regular expression is successfully matched. If so, atSuccess is called on the returned
-     * Match object atSuccess is called, otherwise Optional.empty() is returned.
+     * Match object, otherwise null is returned.
      */
     @Override
-    public void processWith(Environment<TYPE> environment) {
-        environment.executeAndThenCall(null, (consumable) -> {
-            Optional<Consumable.Match> match = consumable.lookingAt(pattern);
-            environment.resultStack().push(match.map(atSuccess));
-        });
+    public AST<TYPE> parseTerminal(Consumable consumable) {
+        Optional<Consumable.Match> match = consumable.lookingAtTerminal(terminalId, pattern, literal, dfa);
+        if (match.isEmpty()) return null;
+
+        var m = match.get();
+        return Environment.withSpan(atSuccess.apply(m), m.start(), m.end(), m.end());
+    }
+
+    /**
+     *
+     * @return Returns the literal the pattern matches or null if the pattern is not a plain literal.
+     */
+    public String literal() {
+        return literal;
+    }
+
+    Pattern pattern() {
+        return pattern;
+    }
+
+    RegexDfa dfa() {
+        return dfa;
+    }
+
+    int terminalId() {
+        return terminalId;
+    }
+
+    /**
+     * @return Returns whether the other parser matches the same pattern and creates its ASTs with the same
+     * atSuccess function.
+     */
+    boolean isSameMatcher(RegExParser<TYPE> other) {
+        return pattern.pattern().equals(other.pattern.pattern()) && pattern.flags() == other.pattern.flags()
+                && atSuccess == other.atSuccess;
+    }
+
+    /**
+     *
+     * @return Returns the chars the pattern can start with.
+     */
+    public FirstSet firstSet() {
+        return literal != null ? FirstSet.of(literal.charAt(0)) : FirstSet.ofRegex(pattern);
+    }
+
+    /**
+     * Checks whether the pattern only matches one fixed string. This is the case if the pattern has no flags
+     * and consists only of ordinary characters and escaped punctuation characters (like "\\{").
+     * @param pattern Pattern
+     * @return Returns the (interned) string the pattern matches or null if the pattern is not a plain literal.
+     */
+    static String literalOf(Pattern pattern) {
+        if (pattern.flags() != 0) return null;
+        String regex = pattern.pattern();
+        if (regex.isEmpty()) return null;
+
+        StringBuilder builder = new StringBuilder(regex.length());
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (++i == regex.length()) return null;
+                char escaped = regex.charAt(i);
+                if (escaped >= 128 || Character.isLetterOrDigit(escaped)) return null;
+                builder.append(escaped);
+            } else if (META_CHARACTERS.indexOf(c) >= 0) {
+                return null;
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString().intern();
     }
 }
@@ -0,0 +1,27 @@
+package org.parser.base;
+
+import org.parser.Consumable;
+import org.parser.tree.AST;
+
+/**
+ * A terminal parser matches directly on the consumable without running subparsers (e.g. the regex-parser).
+ * Terminals can therefore be called directly (without an environment), e.g. by the compiled parsers.
+ * @param <TYPE> type of the AST
+ */
+public interface TerminalParser<TYPE> extends Parser<TYPE> {
+    /**
+     * Matches the terminal at the current position of the consumable.
+     * If the terminal does not match, the consumable must not be changed.
+     * @param consumable Consumable
+     * @return Returns the resulting AST (with its span) or null if the terminal did not match.
+     */
+    AST<TYPE> parseTerminal(Consumable consumable);
+
+    @Override
+    default void processWith(Environment<TYPE> environment) {
+        environment.executeAndThenCall(null, (consumable) -> {
+            AST<TYPE> ast = parseTerminal(consumable);
+            environment.resultStack().push(ast != null ? ast : Environment.failure());
+        });
+    }
+}
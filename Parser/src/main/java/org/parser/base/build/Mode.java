@@ -35,7 +35,7 @@ public class Mode {
     public static <TYPE> Function<List<AST<TYPE>>, AST<TYPE>> takeFirstChild() {
         return trees -> trees.size() >= 1
                 ? trees.get(0)
-                : new AST<TYPE>(null).setIgnore(true);
+                : AST.ignoreNode();
     }
 
     /**
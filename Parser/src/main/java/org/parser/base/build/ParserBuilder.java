@@ -1,16 +1,41 @@
 package org.parser.base.build;
 
+import org.parser.base.ConcatParser;
+import org.parser.base.FirstSet;
+import org.parser.base.LiteralChoiceParser;
+import org.parser.base.ManyParser;
+import org.parser.base.MemoPlan;
+import org.parser.base.MemoPolicy;
+import org.parser.base.OptionalParser;
+import org.parser.base.OrParser;
 import org.parser.base.Parser;
 import org.parser.base.PlaceholderParser;
+import org.parser.base.PrefixChoiceParser;
+import org.parser.base.RegExParser;
+import org.parser.base.TerminalParser;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Used to create a ParserPool.
  * @param <TYPE> type for the AST
  */
 public class ParserBuilder<TYPE> {
+    /**
+     * Bounds of the depth hints of the rules.
+     */
+    private static final int MIN_DEPTH_HINT = 16;
+    private static final int MAX_DEPTH_HINT = 4096;
+
     /**
      * Stores all rules by name (A rule is one line in the BNF).
      */
@@ -20,10 +45,16 @@ public class ParserBuilder<TYPE> {
      * This map must be iterated through when building, as the placeholders before build do not represent a parser.
      */
     private Map<String, PlaceholderParser<TYPE>> placeholders;
+    /**
+     * Stores the memo policies that were set for the rules (null if the rule uses the policy of the parse).
+     * Rules without an entry get the default policy (see defaultMemoPolicy).
+     */
+    private Map<String, MemoPolicy> memoPolicies;
 
     public ParserBuilder() {
         this.rules = new HashMap<>();
         this.placeholders = new HashMap<>();
+        this.memoPolicies = new HashMap<>();
     }
 
     /**
@@ -32,6 +63,11 @@ public class ParserBuilder<TYPE> {
      */
     public ParserPool<TYPE> build() {
         buildPlaceholders();
+        markLeftRecursion();
+        factorPrefixes();
+        setDepthHints();
+        setFirstSets();
+        freeze();
         ParserPool<TYPE> pool = new ParserPool<>(rules);
         clear();
         return pool;
@@ -39,21 +75,275 @@ public class ParserBuilder<TYPE> {
 
     /**
      * Builds the whole placeholders by replacing the parsers in the placeholders with the rules associated with the name
-     * are replaced by the rules associated with the name.
+     * are replaced by the rules associated with the name. Every rule gets its integer id (the key of its memo entries)
+     * and its memo policy.
      */
     private void buildPlaceholders() {
-        placeholders.forEach((name, placeholder) -> {
+        int ruleId = PlaceholderParser.reserveRuleIds(placeholders.size());
+        for (var entry : placeholders.entrySet()) {
+            var name = entry.getKey();
+            var placeholder = entry.getValue();
             var parser = rules.get(name);
-            placeholder.setParserIfNull(name, parser);
+            placeholder.setParserIfNull(name, ruleId++, parser);
+            placeholder.setMemoPolicy(memoPolicies.containsKey(name) ? memoPolicies.get(name) : defaultMemoPolicy(parser));
+        }
+    }
+
+    /**
+     * A rule that contains only terminals (e.g. a number or a string) is not memoized, since matching the
+     * terminals again is about as fast as storing and looking up the result.
+     * @return Returns the memo policy of a rule without a set policy.
+     */
+    private MemoPolicy defaultMemoPolicy(Parser<TYPE> parser) {
+        if (parser == null) return null;
+        return containsOnlyTerminals(parser, Collections.newSetFromMap(new IdentityHashMap<>())) ? MemoPolicy.OFF : null;
+    }
+
+    private boolean containsOnlyTerminals(Parser<TYPE> parser, Set<Parser<TYPE>> visited) {
+        if (parser instanceof TerminalParser<TYPE>) return true;
+        if (parser == null || parser instanceof PlaceholderParser<TYPE> || parser.subparsers().isEmpty()) return false;
+        if (!visited.add(parser)) return true;
+
+        return parser.subparsers().stream().allMatch(subparser -> containsOnlyTerminals(subparser, visited));
+    }
+
+    /**
+     * Marks the rules of the left-recursive cycles. A rule calls another rule at its start position (a left call)
+     * if the other rule is reached without consuming a char. Every cycle of left calls gets at least one leader
+     * (see PlaceholderParser.setLeftRecursion): A rule with a left call to itself is always a leader, otherwise the
+     * first rule of the cycle. If the rules of the cycle without the leaders still contain cycles, these get
+     * leaders too. The pool contains the placeholders of the left-recursive rules, since only the placeholder
+     * grows the result of a rule.
+     */
+    private void markLeftRecursion() {
+        Map<PlaceholderParser<TYPE>, List<PlaceholderParser<TYPE>>> leftCalls = new LinkedHashMap<>();
+        Map<Parser<TYPE>, Boolean> nullables = new IdentityHashMap<>();
+        Set<Parser<TYPE>> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        rules.values().forEach(parser -> collectPlaceholders(parser, visited, leftCalls));
+        for (var placeholder : leftCalls.keySet()) {
+            List<PlaceholderParser<TYPE>> calls = new ArrayList<>();
+            placeholder.subparsers().forEach(body -> addLeftCalls(body, calls, nullables));
+            leftCalls.put(placeholder, calls);
+        }
+
+        for (var cycle : cycles(leftCalls.keySet(), leftCalls)) {
+            List<PlaceholderParser<TYPE>> leaders = new ArrayList<>();
+            chooseLeaders(cycle, leftCalls, leaders);
+            cycle.forEach(placeholder -> placeholder.setLeftRecursion(leaders.contains(placeholder), cycle));
+        }
+        placeholders.forEach((name, placeholder) -> {
+            if (placeholder.isLeftRecursive() && rules.containsKey(name)) rules.put(name, placeholder);
+        });
+    }
+
+    private void collectPlaceholders(Parser<TYPE> parser, Set<Parser<TYPE>> visited,
+                                     Map<PlaceholderParser<TYPE>, List<PlaceholderParser<TYPE>>> placeholders) {
+        if (parser == null || !visited.add(parser)) return;
+
+        if (parser instanceof PlaceholderParser<TYPE> placeholder) placeholders.put(placeholder, List.of());
+        parser.subparsers().forEach(subparser -> collectPlaceholders(subparser, visited, placeholders));
+    }
+
+    /**
+     * Adds the placeholders the parser reaches without consuming a char.
+     */
+    private void addLeftCalls(Parser<TYPE> parser, List<PlaceholderParser<TYPE>> calls,
+                              Map<Parser<TYPE>, Boolean> nullables) {
+        if (parser instanceof PlaceholderParser<TYPE> placeholder) {
+            calls.add(placeholder);
+        } else if (parser instanceof ConcatParser<TYPE>) {
+            for (var subparser : parser.subparsers()) {
+                addLeftCalls(subparser, calls, nullables);
+                if (!isNullable(subparser, nullables)) break;
+            }
+        } else if (parser != null) {
+            parser.subparsers().forEach(subparser -> addLeftCalls(subparser, calls, nullables));
+        }
+    }
+
+    /**
+     * A parser is nullable if it can succeed without consuming a char. A regex-parser is nullable if its first set
+     * contains the empty string (see FirstSet.ofRegex, patterns that are not analyzed count as nullable), other
+     * terminals count as not nullable. Recursion is not followed.
+     */
+    private boolean isNullable(Parser<TYPE> parser, Map<Parser<TYPE>, Boolean> nullables) {
+        if (parser instanceof RegExParser<TYPE> regExParser) return regExParser.firstSet().containsEmpty();
+        if (parser == null || parser instanceof TerminalParser<TYPE>) return false;
+        if (!parser.canFail()) return true;
+        Boolean known = nullables.get(parser);
+        if (known != null) return known;
+
+        nullables.put(parser, false);
+        boolean nullable;
+        if (parser instanceof ConcatParser<TYPE>) {
+            nullable = parser.subparsers().stream().allMatch(subparser -> isNullable(subparser, nullables));
+        } else if (parser instanceof OrParser<TYPE> || parser instanceof PlaceholderParser<TYPE>) {
+            nullable = parser.subparsers().stream().anyMatch(subparser -> isNullable(subparser, nullables));
+        } else {
+            nullable = false;
+        }
+        nullables.put(parser, nullable);
+        return nullable;
+    }
+
+    /**
+     * Chooses the leaders of the cycle (see markLeftRecursion).
+     */
+    private void chooseLeaders(Set<PlaceholderParser<TYPE>> cycle,
+                               Map<PlaceholderParser<TYPE>, List<PlaceholderParser<TYPE>>> leftCalls,
+                               List<PlaceholderParser<TYPE>> leaders) {
+        var leader = cycle.stream()
+                .filter(placeholder -> leftCalls.get(placeholder).contains(placeholder))
+                .findFirst().orElse(cycle.iterator().next());
+        leaders.add(leader);
+
+        Set<PlaceholderParser<TYPE>> rest = new LinkedHashSet<>(cycle);
+        rest.remove(leader);
+        cycles(rest, leftCalls).forEach(subcycle -> chooseLeaders(subcycle, leftCalls, leaders));
+    }
+
+    /**
+     * @return Returns the strongly connected components of the left calls between the placeholders that contain
+     * a cycle.
+     */
+    private List<Set<PlaceholderParser<TYPE>>> cycles(Set<PlaceholderParser<TYPE>> placeholders,
+                                                     Map<PlaceholderParser<TYPE>, List<PlaceholderParser<TYPE>>> leftCalls) {
+        var components = new LeftCallComponents<>(placeholders, leftCalls);
+        placeholders.forEach(components::visit);
+        return components.cycles;
+    }
+
+    /**
+     * Sets the depth hint of every rule (that is an or-parser) to twice the length of the longest chain of nested
+     * parsers that starts at the rule, since a concat-parser keeps the results of its finished subparsers on the
+     * result stack. Recursion is not followed, deeper inputs let the stacks grow.
+     */
+    private void setDepthHints() {
+        Map<Parser<TYPE>, Integer> depths = new IdentityHashMap<>();
+        rules.values().forEach(parser -> {
+            if (parser instanceof OrParser<TYPE> orParser) {
+                int depth = nestingDepth(parser, depths);
+                orParser.setDepthHint(Math.min(MAX_DEPTH_HINT, Math.max(MIN_DEPTH_HINT, 2 * depth)));
+            }
         });
     }
 
+    /**
+     * Collapses the literal alternatives (see OrParser.collapseLiterals) and factors out the common prefixes of
+     * the alternatives (see OrParser.factorPrefixes) of every or-parser that is reachable from the rules, so a
+     * prefix is not parsed again after an alternative failed.
+     */
+    private void factorPrefixes() {
+        Set<Parser<TYPE>> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        rules.values().forEach(parser -> factorPrefixesRec(parser, visited));
+    }
+
+    private void factorPrefixesRec(Parser<TYPE> parser, Set<Parser<TYPE>> visited) {
+        if (parser == null || !visited.add(parser)) return;
+
+        if (parser instanceof OrParser<TYPE> orParser) {
+            orParser.collapseLiterals();
+            orParser.factorPrefixes();
+        }
+        parser.subparsers().forEach(subparser -> factorPrefixesRec(subparser, visited));
+    }
+
+    /**
+     * Sets the first sets of the alternatives of every or-parser that is reachable from the rules
+     * (see OrParser.setFirstSets).
+     */
+    private void setFirstSets() {
+        Map<Parser<TYPE>, FirstSet> firstSets = new IdentityHashMap<>();
+        Set<Parser<TYPE>> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        rules.values().forEach(parser -> setFirstSetsRec(parser, visited, firstSets));
+    }
+
+    private void setFirstSetsRec(Parser<TYPE> parser, Set<Parser<TYPE>> visited, Map<Parser<TYPE>, FirstSet> firstSets) {
+        if (parser == null || !visited.add(parser)) return;
+
+        if (parser instanceof OrParser<TYPE> orParser) {
+            orParser.setFirstSets(parser.subparsers().stream().map(subparser -> firstSet(subparser, firstSets)).toList());
+        }
+        parser.subparsers().forEach(subparser -> setFirstSetsRec(subparser, visited, firstSets));
+    }
+
+    /**
+     * Computes the chars the parser can start with. The computation is conservative: Parsers that are not
+     * analyzed and rules that are still computed (recursion) can start with any char.
+     */
+    private FirstSet firstSet(Parser<TYPE> parser, Map<Parser<TYPE>, FirstSet> firstSets) {
+        if (parser == null) return FirstSet.ANY;
+        FirstSet known = firstSets.get(parser);
+        if (known != null) return known;
+
+        firstSets.put(parser, FirstSet.ANY);
+        FirstSet firstSet;
+        if (parser instanceof RegExParser<TYPE> regExParser) {
+            firstSet = regExParser.firstSet();
+        } else if (parser instanceof LiteralChoiceParser<TYPE> literalChoice) {
+            firstSet = literalChoice.firstSet();
+        } else if (parser instanceof ConcatParser<TYPE>) {
+            firstSet = FirstSet.EMPTY;
+            for (var subparser : parser.subparsers()) {
+                firstSet = firstSet.then(firstSet(subparser, firstSets));
+            }
+        } else if (parser instanceof OrParser<TYPE> || parser instanceof PrefixChoiceParser<TYPE>) {
+            firstSet = parser.subparsers().stream().map(subparser -> firstSet(subparser, firstSets))
+                    .reduce(FirstSet::union).orElse(FirstSet.ANY);
+        } else if (parser instanceof PlaceholderParser<TYPE> || parser instanceof ManyParser<TYPE>
+                || parser instanceof OptionalParser<TYPE>) {
+            firstSet = parser.subparsers().isEmpty() ? FirstSet.ANY : firstSet(parser.subparsers().get(0), firstSets);
+            if (!parser.canFail()) firstSet = firstSet.withEmpty();
+        } else {
+            firstSet = FirstSet.ANY;
+        }
+        firstSets.put(parser, firstSet);
+        return firstSet;
+    }
+
+    /**
+     * Freezes every parser that is reachable from the rules, so the built parser graph is immutable and can be
+     * shared by threads (the pool publishes it safely through its final fields).
+     */
+    private void freeze() {
+        Set<Parser<TYPE>> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        rules.values().forEach(parser -> freezeRec(parser, visited));
+    }
+
+    private void freezeRec(Parser<TYPE> parser, Set<Parser<TYPE>> visited) {
+        if (parser == null || !visited.add(parser)) return;
+
+        parser.freeze();
+        parser.subparsers().forEach(subparser -> freezeRec(subparser, visited));
+    }
+
+    /**
+     * Computes the nesting depth of the parser. A parser that is still being computed counts as 0
+     * (this breaks the cycles of recursive rules).
+     * @param parser Parser
+     * @param depths already computed depths (-1 while the depth of a parser is computed)
+     * @return Returns the nesting depth of the parser.
+     */
+    private int nestingDepth(Parser<TYPE> parser, Map<Parser<TYPE>, Integer> depths) {
+        Integer known = depths.get(parser);
+        if (known != null) return Math.max(known, 0);
+
+        depths.put(parser, -1);
+        int depth = 0;
+        for (Parser<TYPE> subparser : parser.subparsers()) {
+            depth = Math.max(depth, nestingDepth(subparser, depths));
+        }
+        depths.put(parser, depth + 1);
+        return depth + 1;
+    }
+
     /**
      * Deletes all information contained in this object.
      */
     public void clear() {
         rules = new HashMap<>();
         placeholders = new HashMap<>();
+        memoPolicies = new HashMap<>();
     }
 
     /**
@@ -65,6 +355,23 @@ public class ParserBuilder<TYPE> {
         if (name != null && parser != null) rules.put(name, parser);
     }
 
+    /**
+     * Sets the memo policy of the rule (it takes precedence over the policy of the parse).
+     * @param name rule name
+     * @param memoPolicy memo policy (null if the rule should use the policy of the parse)
+     */
+    void setMemoPolicy(String name, MemoPolicy memoPolicy) {
+        if (name != null) memoPolicies.put(name, memoPolicy);
+    }
+
+    /**
+     * Sets the memo policies of the rules of the plan (see MemoProfiler).
+     * @param plan memo plan
+     */
+    public void applyMemoPlan(MemoPlan plan) {
+        plan.rules().forEach(name -> setMemoPolicy(name, plan.policyOf(name)));
+    }
+
     /**
      * If there is no placeholder for this name yet, it will be created first and then returned.
      * Otherwise the placeholder with the name is simply returned.
@@ -91,6 +398,7 @@ public class ParserBuilder<TYPE> {
 
     public void unite(ParserBuilder<TYPE> other) {
         rules.putAll(other.rules);
+        memoPolicies.putAll(other.memoPolicies);
         other.placeholders.forEach((name, placeholder) -> {
             if (this.placeholders.containsKey(name)) {
                 placeholder.setParserIfNull(name, this.placeholders.get(name));
@@ -106,4 +414,54 @@ public class ParserBuilder<TYPE> {
         resBuilder.unite(builder2);
         return resBuilder;
     }
+
+    /**
+     * Tarjan's algorithm for the strongly connected components of the left calls.
+     */
+    private static final class LeftCallComponents<TYPE> {
+        private final Set<PlaceholderParser<TYPE>> placeholders;
+        private final Map<PlaceholderParser<TYPE>, List<PlaceholderParser<TYPE>>> leftCalls;
+        private final Map<PlaceholderParser<TYPE>, Integer> indices = new IdentityHashMap<>();
+        private final Map<PlaceholderParser<TYPE>, Integer> lowLinks = new IdentityHashMap<>();
+        private final ArrayDeque<PlaceholderParser<TYPE>> stack = new ArrayDeque<>();
+        private final Set<PlaceholderParser<TYPE>> onStack = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final List<Set<PlaceholderParser<TYPE>>> cycles = new ArrayList<>();
+
+        private LeftCallComponents(Set<PlaceholderParser<TYPE>> placeholders,
+                                   Map<PlaceholderParser<TYPE>, List<PlaceholderParser<TYPE>>> leftCalls) {
+            this.placeholders = placeholders;
+            this.leftCalls = leftCalls;
+        }
+
+        private void visit(PlaceholderParser<TYPE> placeholder) {
+            if (indices.containsKey(placeholder)) return;
+
+            int index = indices.size();
+            indices.put(placeholder, index);
+            lowLinks.put(placeholder, index);
+            stack.push(placeholder);
+            onStack.add(placeholder);
+
+            for (var call : leftCalls.get(placeholder)) {
+                if (!placeholders.contains(call)) continue;
+                if (!indices.containsKey(call)) {
+                    visit(call);
+                    lowLinks.put(placeholder, Math.min(lowLinks.get(placeholder), lowLinks.get(call)));
+                } else if (onStack.contains(call)) {
+                    lowLinks.put(placeholder, Math.min(lowLinks.get(placeholder), indices.get(call)));
+                }
+            }
+
+            if (lowLinks.get(placeholder) == index) {
+                Set<PlaceholderParser<TYPE>> component = new LinkedHashSet<>();
+                PlaceholderParser<TYPE> member;
+                do {
+                    member = stack.pop();
+                    onStack.remove(member);
+                    component.add(member);
+                } while (member != placeholder);
+                if (component.size() > 1 || leftCalls.get(placeholder).contains(placeholder)) cycles.add(component);
+            }
+        }
+    }
 }
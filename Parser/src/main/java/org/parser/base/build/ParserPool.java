@@ -1,15 +1,23 @@
 package org.parser.base.build;
 
+import org.parser.base.CompiledParser;
+import org.parser.base.Lexer;
+import org.parser.base.MemoPlan;
 import org.parser.base.Parser;
 
 import java.util.Map;
 
 /**
  * Contains multiple parsers that can be accessed with one name (created by ParserBuilder).
+ * The parsers of a built pool are frozen, so one pool can be shared by all threads.
  * @param <TYPE>  type for the AST
  * @param parsers Map with names of parsers as key and the parser as value
  */
 public record ParserPool<TYPE>(Map<String, Parser<TYPE>> parsers) {
+    public ParserPool {
+        parsers = Map.copyOf(parsers);
+    }
+
     /**
      * @param name Parser name
      * @return Returns a parser with the name. If there is no parser with that name, null
@@ -18,4 +26,34 @@ public record ParserPool<TYPE>(Map<String, Parser<TYPE>> parsers) {
     public Parser<TYPE> getParser(String name) {
         return parsers.get(name);
     }
+
+    /**
+     * Sets the memo policies of the rules of the plan (see MemoProfiler). A compiled pool keeps the policies it
+     * was compiled with, so the plan should be applied before compile is called.
+     * @param plan memo plan
+     * @return Returns this pool.
+     */
+    public ParserPool<TYPE> applyMemoPlan(MemoPlan plan) {
+        plan.applyTo(parsers.values());
+        return this;
+    }
+
+    /**
+     * Creates a lexer of the terminals of the pool (see Lexer). Inputs that are tokenized by the lexer are parsed
+     * by the parsers of the pool (and of the compiled pool) with the same results, but each terminal is matched
+     * at most once per token start. The lexer has to be created before the pool is compiled.
+     * @return Returns the lexer of the pool.
+     */
+    public Lexer<TYPE> lexer() {
+        return new Lexer<>(parsers.values());
+    }
+
+    /**
+     * Compiles the parsers of the pool into one instruction program that is executed by a loop instead of the
+     * environment (see CompiledParser). The compiled parsers create the same ASTs.
+     * @return Returns a pool with the compiled parsers.
+     */
+    public ParserPool<TYPE> compile() {
+        return new ParserPool<>(CompiledParser.compile(parsers));
+    }
 }
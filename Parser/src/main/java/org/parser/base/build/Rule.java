@@ -1,6 +1,7 @@
 package org.parser.base.build;
 
 import org.parser.base.ConcatParser;
+import org.parser.base.MemoPolicy;
 import org.parser.base.OrParser;
 import org.parser.base.Parser;
 import org.parser.tree.AST;
@@ -272,6 +273,17 @@ public class Rule<TYPE> {
         return addToCurrentSubrule(subruleMapper.apply(subsubrule.parser()));
     }
 
+    /**
+     * Sets the memo policy of this rule, which takes precedence over the memo policy of the parse
+     * (e.g. MemoPolicy.OFF for a rule that is never tried twice at the same position).
+     * @param memoPolicy memo policy (null if the rule should use the policy of the parse)
+     * @return Returns the underlying rule.
+     */
+    public Rule<TYPE> memo(MemoPolicy memoPolicy) {
+        parserBuilder.setMemoPolicy(name, memoPolicy);
+        return this;
+    }
+
     /**
      * Adds the current subrule (if it's not empty) as a new clause to the rule. Then the current subrule
      * will be replaced with a new subrule.
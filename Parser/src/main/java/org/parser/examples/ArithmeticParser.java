@@ -1,6 +1,7 @@
 package org.parser.examples;
 
 import org.parser.Consumable;
+import org.parser.IgnoreProfile;
 import org.parser.base.Environment;
 import org.parser.base.Parser;
 import org.parser.base.build.Mode;
@@ -16,6 +17,9 @@ public class ArithmeticParser implements Parser<ArithmeticParser.TYPE> {
         NUMBER, ADD, SUB, MUL, DIV, POT, FUNC, SIN, COS, TAN, PI, E
     }
 
+    private static final IgnoreProfile ignoreProfile =
+            IgnoreProfile.of(Consumable.Ignore.IGNORE_WHITESPACE, Consumable.Ignore.IGNORE_COMMENT);
+
     private final Parser<TYPE> aritParser;
 
     public ArithmeticParser() {
@@ -34,7 +38,7 @@ public class ArithmeticParser implements Parser<ArithmeticParser.TYPE> {
 
     @Override
     public Consumable consumableOf(CharSequence sequence) {
-        return new Consumable(sequence, Consumable.Ignore.IGNORE_WHITESPACE, Consumable.Ignore.IGNORE_COMMENT);
+        return new Consumable(sequence, ignoreProfile);
     }
 
     /**
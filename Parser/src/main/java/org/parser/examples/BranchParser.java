@@ -1,6 +1,7 @@
 package org.parser.examples;
 
 import org.parser.Consumable;
+import org.parser.IgnoreProfile;
 import org.parser.base.Environment;
 import org.parser.base.Parser;
 import org.parser.base.build.ParserBuilder;
@@ -17,6 +18,9 @@ public class BranchParser implements Parser<BranchParser.TYPE> {
         IDENTIFIER, ASSIGN, BLOCK
     }
 
+    private static final IgnoreProfile ignoreProfile =
+            IgnoreProfile.of(Consumable.Ignore.IGNORE_WHITESPACE, Consumable.Ignore.IGNORE_COMMENT);
+
     private final Parser<TYPE> branchParser;
 
     public BranchParser() {
@@ -35,7 +39,7 @@ public class BranchParser implements Parser<BranchParser.TYPE> {
 
     @Override
     public Consumable consumableOf(CharSequence sequence) {
-        return new Consumable(sequence, Consumable.Ignore.IGNORE_WHITESPACE, Consumable.Ignore.IGNORE_COMMENT);
+        return new Consumable(sequence, ignoreProfile);
     }
 
     /**
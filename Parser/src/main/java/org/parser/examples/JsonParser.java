@@ -1,6 +1,7 @@
 package org.parser.examples;
 
 import org.parser.Consumable;
+import org.parser.IgnoreProfile;
 import org.parser.base.Environment;
 import org.parser.base.Parser;
 import org.parser.base.build.ParserBuilder;
@@ -15,6 +16,9 @@ public class JsonParser implements Parser<JsonParser.TYPE> {
         ARRAY, OBJECT, PROPERTY, NUMBER, STRING, TRUE, FALSE, NULL
     }
 
+    private static final IgnoreProfile ignoreProfile =
+            IgnoreProfile.of(Consumable.Ignore.IGNORE_WHITESPACE, Consumable.Ignore.IGNORE_COMMENT);
+
     private final Parser<TYPE> jsonParser;
 
     public JsonParser() {
@@ -33,7 +37,7 @@ public class JsonParser implements Parser<JsonParser.TYPE> {
 
     @Override
     public Consumable consumableOf(CharSequence sequence) {
-        return new Consumable(sequence, Consumable.Ignore.IGNORE_WHITESPACE, Consumable.Ignore.IGNORE_COMMENT);
+        return new Consumable(sequence, ignoreProfile);
     }
 
     /**
@@ -9,6 +9,11 @@ import java.util.*;
  * @param <TYPE> Type/Token
  */
 public class AST<TYPE> {
+    /**
+     * Shared node with the ignore bit set (see ignoreNode()).
+     */
+    private static final AST<?> IGNORE_NODE = new AST<>(null, null, List.of()).setIgnore(true).share();
+
     /**
      * The type of the current node
      */
@@ -25,17 +30,38 @@ public class AST<TYPE> {
      * Ignore bit. If the bit is set, this AST (with children) should be ignored.
      */
     private boolean ignore;
+    /**
+     * The range of this node in the source sequence (start inclusive, end exclusive; -1 if unknown).
+     */
+    private int start;
+    private int end;
+    /**
+     * A shared node cannot be changed, since it can be part of many ASTs.
+     */
+    private boolean shared;
 
     public AST(TYPE type) {
         this.type = type;
         this.match = null;
         this.children = new ArrayList<>();
         this.ignore = false;
+        this.shared = false;
+        this.start = -1;
+        this.end = -1;
     }
 
+    /**
+     * Creates an AST with the match. The span of the AST is the span of the match.
+     * @param type type
+     * @param match Match object
+     */
     public AST(TYPE type, Consumable.Match match) {
         this(type);
         this.match = match;
+        if (match != null) {
+            this.start = match.start();
+            this.end = match.end();
+        }
     }
 
     public AST(TYPE type, String match) {
@@ -53,12 +79,40 @@ public class AST<TYPE> {
         this.children = children;
     }
 
+    /**
+     * Returns the shared node that has no type, no children and the ignore bit set. Parsers return this node
+     * instead of creating a new one if their result should be ignored. The node cannot be changed.
+     * @return Returns the shared ignore node.
+     */
+    @SuppressWarnings("unchecked")
+    public static <TYPE> AST<TYPE> ignoreNode() {
+        return (AST<TYPE>) IGNORE_NODE;
+    }
+
+    /**
+     *
+     * @return Returns whether this node is shared (like the ignore node) and therefore cannot be changed.
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    private AST<TYPE> share() {
+        this.shared = true;
+        return this;
+    }
+
+    private void checkNotShared() {
+        if (shared) throw new UnsupportedOperationException("A shared AST cannot be changed.");
+    }
+
     /**
      * Adds a child to this node (another AST)
      * @param ast AST
      * @return Returns the AST on which the method was called
      */
     public AST<TYPE> addChild(AST<TYPE> ast) {
+        checkNotShared();
         children.add(ast);
         return this;
     }
@@ -69,6 +123,7 @@ public class AST<TYPE> {
      * @return Returns the AST on which the method was called
      */
     public AST<TYPE> addChildren(Collection<AST<TYPE>> ASTs) {
+        checkNotShared();
         children.addAll(ASTs);
         return this;
     }
@@ -78,10 +133,49 @@ public class AST<TYPE> {
      * @return Returns the AST on which the method was called
      */
     public AST<TYPE> setIgnore(boolean ignore) {
+        if (this.ignore == ignore) return this;
+        checkNotShared();
         this.ignore = ignore;
         return this;
     }
 
+    /**
+     * Sets the range of this node in the source sequence.
+     * @param start index of the first char
+     * @param end index after the last char
+     * @return Returns the AST on which the method was called
+     */
+    public AST<TYPE> setSpan(int start, int end) {
+        checkNotShared();
+        this.start = start;
+        this.end = end;
+        return this;
+    }
+
+    /**
+     *
+     * @return Returns whether the range of this node in the source sequence is known.
+     */
+    public boolean hasSpan() {
+        return start >= 0;
+    }
+
+    /**
+     *
+     * @return Returns the index of the first char of this node in the source sequence (-1 if unknown).
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     *
+     * @return Returns the index after the last char of this node in the source sequence (-1 if unknown).
+     */
+    public int getEnd() {
+        return end;
+    }
+
     /**
      * Indicates whether this AST should be ignored.
      * @return Returns the ignore bit
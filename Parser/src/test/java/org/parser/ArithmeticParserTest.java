@@ -3,14 +3,25 @@ package org.parser;
 import org.junit.jupiter.api.DisplayNameGeneration;
 import org.junit.jupiter.api.DisplayNameGenerator;
 import org.junit.jupiter.api.Test;
+import org.parser.base.CompiledParser;
+import org.parser.base.LiteralChoiceParser;
+import org.parser.base.MemoPlan;
+import org.parser.base.MemoProfiler;
 import org.parser.base.Parser;
+import org.parser.base.PrefixChoiceParser;
+import org.parser.base.build.Mode;
+import org.parser.base.build.ParserBuilder;
+import org.parser.base.build.ParserPool;
 import org.parser.examples.ArithmeticParser;
 import org.parser.examples.ArithmeticParser.TYPE;
 import org.parser.tree.AST;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
@@ -142,4 +153,210 @@ public class ArithmeticParserTest {
         String expr = "1 + 1--";
         testExpr(expr, setupASTofExpr6());
     }
+
+    @Test
+    public void Test_expr_compiled() {
+        Parser<TYPE> compiled = ArithmeticParser.arithmeticExample().compile().getParser("EXPR");
+        for (String expr : List.of("42 + 11 - 1*20/10-14", "sin(14+3)*3^2- 1", "12 - 11 - (pi - 2^1*2)", "1 + 1--")) {
+            assertEquals(compiled.parse(exprParser.consumableOf(expr)), exprParser.parse(expr));
+        }
+    }
+
+    @Test
+    public void Test_memo_plan() {
+        var pool = ArithmeticParser.arithmeticExample();
+        var profiler = new MemoProfiler<>(pool.getParser("EXPR"));
+        for (String expr : List.of("42 + 11 - 1*20/10-14", "sin(14+3)*3^2- 1", "9 - 5 - 1 + 6 - 5-1")) {
+            assertTrue(profiler.train(exprParser.consumableOf(expr)).isPresent());
+        }
+
+        // the alternatives of ADD share their prefix SUB (parsed once), NUMBER is never tried twice
+        MemoPlan plan = profiler.plan();
+        assertTrue(plan.contains("SUB"));
+        assertFalse(plan.memoizes("SUB"));
+        assertTrue(plan.contains("NUMBER"));
+        assertFalse(plan.memoizes("NUMBER"));
+
+        Parser<TYPE> planned = pool.applyMemoPlan(plan).getParser("EXPR");
+        String expr = "12 - 11 - (pi - 2^1*2)";
+        assertEquals(planned.parse(exprParser.consumableOf(expr)), exprParser.parse(expr));
+    }
+
+    /**
+     * Grammar (left-recursive): <br>
+     * EXPR ::= EXPR "+" TERM | EXPR "-" TERM | TERM <br>
+     * TERM ::= FACTOR "*" NUMBER | NUMBER <br>
+     * FACTOR ::= TERM <br>
+     */
+    private static ParserPool<TYPE> leftRecursiveExample() {
+        ParserBuilder<TYPE> builder = new ParserBuilder<>();
+        builder.newRule("EXPR")
+                .type(TYPE.ADD).rule("EXPR").hide("\\+").rule("TERM")
+                .or()
+                .type(TYPE.SUB).rule("EXPR").hide("\\-").rule("TERM")
+                .or()
+                .rule("TERM")
+                .end();
+        builder.newRule("TERM")
+                .type(TYPE.MUL).rule("FACTOR").hide("\\*").rule("NUMBER")
+                .or()
+                .rule("NUMBER")
+                .end();
+        builder.newRule("FACTOR").rule("TERM").end();
+        builder.newRule("NUMBER").match(TYPE.NUMBER, "\\d+").end();
+        return builder.build();
+    }
+
+    @Test
+    public void Test_left_recursion() {
+        var num = List.of("1", "2", "3", "4", "5").stream()
+                .map(n -> new AST<>(TYPE.NUMBER, new Consumable.Match(n))).toList();
+        // 1 - 2 + 3*4*5 is parsed left-associative: ((1 - 2) + ((3*4)*5))
+        var subAST = new AST<>(TYPE.SUB, List.of(num.get(0), num.get(1)));
+        var mulAST = new AST<>(TYPE.MUL, List.of(new AST<>(TYPE.MUL, List.of(num.get(2), num.get(3))), num.get(4)));
+        var expected = new AST<>(TYPE.ADD, List.of(subAST, mulAST));
+
+        var pool = leftRecursiveExample();
+        for (Parser<TYPE> parser : List.of(pool.getParser("EXPR"), pool.compile().getParser("EXPR"))) {
+            var consumable = exprParser.consumableOf("1 - 2 + 3*4*5");
+            assertEquals(parser.parse(consumable), Optional.of(expected));
+            assertTrue(consumable.isEmpty());
+            assertEquals(parser.parse(exprParser.consumableOf("7")), Optional.of(new AST<>(TYPE.NUMBER, new Consumable.Match("7"))));
+            assertTrue(parser.parse(exprParser.consumableOf("+ 1")).isEmpty());
+        }
+    }
+
+    @Test
+    public void Test_left_recursion_behind_nullable_terminal() {
+        // the self call of SUM is behind a regex that can match the empty string
+        ParserBuilder<TYPE> builder = new ParserBuilder<>();
+        builder.newRule("SUM")
+                .type(TYPE.ADD).hide("\\s*").rule("SUM").hide("\\+").rule("NUMBER")
+                .or()
+                .rule("NUMBER")
+                .end();
+        builder.newRule("NUMBER").match(TYPE.NUMBER, "\\d+").end();
+        var pool = builder.build();
+
+        var num = List.of("1", "2", "3").stream().map(n -> new AST<>(TYPE.NUMBER, new Consumable.Match(n))).toList();
+        var expected = new AST<>(TYPE.ADD, List.of(new AST<>(TYPE.ADD, List.of(num.get(0), num.get(1))), num.get(2)));
+        for (Parser<TYPE> parser : List.of(pool.getParser("SUM"), pool.compile().getParser("SUM"))) {
+            assertEquals(parser.parse("1+2+3"), Optional.of(expected));
+        }
+    }
+
+    @Test
+    public void Test_prefix_factoring() {
+        ParserBuilder<TYPE> builder = new ParserBuilder<>();
+        builder.newRule("PAIR")
+                .type(TYPE.ADD).hide("\\(").rule("NUMBER").hide("\\+").rule("NUMBER").hide("\\)")
+                .or()
+                .type(TYPE.SUB).hide("\\(").rule("NUMBER").hide("\\-").rule("NUMBER").hide("\\)")
+                .or()
+                .type(TYPE.MUL).hide("\\(").rule("NUMBER").hide("\\)")
+                .end();
+        builder.newRule("NUMBER").match(TYPE.NUMBER, "\\d+").end();
+        Parser<TYPE> pair = builder.build().getParser("PAIR");
+
+        // the three alternatives share the prefix "(" NUMBER
+        assertEquals(pair.subparsers().size(), 1);
+        assertTrue(pair.subparsers().get(0) instanceof PrefixChoiceParser<TYPE>);
+
+        var num1 = new AST<>(TYPE.NUMBER, new Consumable.Match("1"));
+        var num2 = new AST<>(TYPE.NUMBER, new Consumable.Match("2"));
+        for (Parser<TYPE> parser : List.of(pair, CompiledParser.compile(pair))) {
+            assertEquals(parser.parse("(1-2)"), Optional.of(new AST<>(TYPE.SUB, List.of(num1, num2))));
+            assertEquals(parser.parse("(1)"), Optional.of(new AST<>(TYPE.MUL, List.of(num1))));
+            var consumable = new Consumable("(1*2)");
+            assertTrue(parser.parse(consumable).isEmpty());
+            assertEquals(consumable.index(), 0);
+        }
+
+        // the compiled program matches the prefix once too: "(", "1" and the three rests
+        int[] calls = new int[2];
+        for (int i = 0; i < 2; i++) {
+            int parser = i;
+            var consumable = new Consumable("(1)") {
+                @Override
+                public Optional<Match> lookingAtTerminal(int terminal, Pattern pattern, String literal, RegexDfa dfa) {
+                    calls[parser]++;
+                    return super.lookingAtTerminal(terminal, pattern, literal, dfa);
+                }
+            };
+            assertTrue((i == 0 ? pair : CompiledParser.compile(pair)).parse(consumable).isPresent());
+        }
+        assertEquals(calls[1], calls[0]);
+        assertEquals(calls[0], 5);
+
+        // an alternative whose atSuccess returns null leaves the prefix to the next alternative
+        ParserBuilder<TYPE> rejecting = new ParserBuilder<>();
+        rejecting.newRule("PAREN")
+                .type(asts -> null).hide("\\(").rule("NUMBER").hide("\\)")
+                .or()
+                .type(TYPE.MUL).hide("\\(").rule("NUMBER").hide("\\)")
+                .end();
+        rejecting.newRule("NUMBER").match(TYPE.NUMBER, "\\d+").end();
+        var pool = rejecting.build();
+        for (Parser<TYPE> parser : List.of(pool.getParser("PAREN"), pool.compile().getParser("PAREN"))) {
+            assertEquals(parser.parse("(1)"), Optional.of(new AST<>(TYPE.MUL, List.of(num1))));
+        }
+    }
+
+    @Test
+    public void Test_literal_choice() {
+        ParserBuilder<TYPE> builder = new ParserBuilder<>();
+        builder.newRule("OPERATOR")
+                .match(TYPE.ADD, "<=").or().match(TYPE.SUB, "<").or().match(TYPE.MUL, "<<").or().keyword(TYPE.PI, "pi")
+                .end();
+        var pool = builder.build();
+        assertEquals(pool.getParser("OPERATOR").subparsers().size(), 1);
+        assertTrue(pool.getParser("OPERATOR").subparsers().get(0) instanceof LiteralChoiceParser<TYPE>);
+
+        for (Parser<TYPE> operator : List.of(pool.getParser("OPERATOR"), pool.compile().getParser("OPERATOR"))) {
+            // first match like the or-parser: "<" comes before "<<"
+            var consumable = new Consumable("<<");
+            assertEquals(operator.parse(consumable), Optional.of(new AST<>(TYPE.SUB, new Consumable.Match("<"))));
+            assertEquals(consumable.index(), 1);
+            assertEquals(operator.parse("<=").map(AST::getType), Optional.of(TYPE.ADD));
+            assertEquals(operator.parse("pi").map(AST::getType), Optional.of(TYPE.PI));
+            assertTrue(operator.parse("p").isEmpty());
+        }
+    }
+
+    @Test
+    public void Test_literal_choice_result_is_mutable() {
+        ParserBuilder<TYPE> builder = new ParserBuilder<>();
+        builder.newRule("OPERATOR")
+                .type(Mode.all(TYPE.ADD)).match(TYPE.NUMBER, "a").or().type(Mode.all(TYPE.SUB)).match(TYPE.NUMBER, "b")
+                .end();
+        var pool = builder.build();
+        assertTrue(pool.getParser("OPERATOR").subparsers().get(0) instanceof LiteralChoiceParser<TYPE>);
+
+        for (Parser<TYPE> operator : List.of(pool.getParser("OPERATOR"), pool.compile().getParser("OPERATOR"))) {
+            var ast = operator.parse("b").orElseThrow();
+            assertEquals(ast.getType(), TYPE.SUB);
+            ast.addChild(new AST<>(TYPE.NUMBER, new Consumable.Match("c")));
+            assertEquals(ast.getChildren().size(), 2);
+        }
+    }
+
+    @Test
+    public void Test_lexer_falls_back_inside_tokens() {
+        ParserBuilder<TYPE> builder = new ParserBuilder<>();
+        builder.newRule("OPERATOR")
+                .match(TYPE.SUB, "<").or().match(TYPE.MUL, "<<").or().match(TYPE.NUMBER, "\\d+")
+                .end();
+        builder.newRule("OPERATORS").type(TYPE.ADD).rule("OPERATOR").rule("OPERATOR").rule("OPERATOR").end();
+        var pool = builder.build();
+        var lexer = pool.lexer();
+        assertEquals(lexer.size(), 3);
+
+        // the lexer splits "<<12" into "<<" and "12", the parser needs "<" at index 1 (no token start)
+        var operators = pool.getParser("OPERATORS");
+        var expected = operators.parse("<<12");
+        assertTrue(expected.isPresent());
+        assertEquals(operators.parse(lexer.tokenize(new Consumable("<<12"))), expected);
+        assertEquals(pool.compile().getParser("OPERATORS").parse(lexer.tokenize(new Consumable("<<12"))), expected);
+        assertTrue(operators.parse(lexer.tokenize(new Consumable("<<"))).isEmpty());
+    }
 }
@@ -0,0 +1,71 @@
+package org.parser;
+
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.parser.base.Parser;
+import org.parser.examples.JsonParser;
+import org.parser.examples.JsonParser.TYPE;
+import org.parser.tree.AST;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+public class ByteConsumableTest {
+    private static final Parser<TYPE> jsonParser = new JsonParser();
+
+    private static ByteConsumable utf8(String text) {
+        return new ByteConsumable(text.getBytes(StandardCharsets.UTF_8),
+                Consumable.Ignore.IGNORE_WHITESPACE, Consumable.Ignore.IGNORE_COMMENT);
+    }
+
+    @Test
+    public void Test_lookingAt_utf8() {
+        var consumable = utf8("Grüße\u00A0 // ü\n \"é\u00A0\" 42");
+
+        assertEquals(consumable.lookingAtLiteral("Grüße").map(Consumable.Match::matched), Optional.of("Grüße"));
+        // the bytes of U+00A0 are no whitespace for \s
+        assertEquals(consumable.lookingAt("\\s"), Optional.empty());
+        assertEquals(consumable.lookingAtLiteral("\u00A0").map(Consumable.Match::matched), Optional.of("\u00A0"));
+
+        Optional<Consumable.Match> string = consumable.lookingAt("\"[^\"]*\"");
+        assertTrue(string.isPresent());
+        assertEquals(string.get().matched(), "\"é\u00A0\"");
+        assertEquals(string.get().end() - string.get().start(), 6);
+        assertEquals(consumable, new Consumable("42"));
+    }
+
+    @Test
+    public void Test_json_bytes() {
+        String json = "{\"name\": \"Zoë\", \"tags\": [1, 2.5e3, \"ß\"]}";
+
+        Optional<AST<TYPE>> fromBytes = jsonParser.parse(utf8(json));
+        assertTrue(fromBytes.isPresent());
+        assertEquals(fromBytes, jsonParser.parse(json));
+        assertEquals(fromBytes.get().getEnd(), json.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    public void Test_json_records() {
+        String ndjson = "{\"name\": \"Zoë\"}\r\n[1, \"ß\"]\r\n\r\n{\"x\": null}";
+        var records = jsonParser.parseRecords(utf8(ndjson), "\r\n").toList();
+        assertEquals(records, List.of(
+                jsonParser.parse("{\"name\": \"Zoë\"}"), jsonParser.parse("[1, \"ß\"]"), jsonParser.parse("{\"x\": null}")));
+    }
+
+    @Test
+    public void Test_json_records_with_utf8_separator() {
+        List<String> records = IntStream.range(0, 5000).mapToObj(i -> "{\"id\": " + i + ", \"name\": \"Zoë\"}").toList();
+        String text = String.join("\u00B6", records);
+        var expected = records.stream().map(jsonParser::parse).toList();
+
+        assertEquals(jsonParser.parseRecords(utf8(text), "\u00B6").toList(), expected);
+        assertEquals(jsonParser.parseRecords(utf8(text), "\u00B6").parallel().toList(), expected);
+    }
+}
@@ -3,10 +3,23 @@ package org.parser;
 import org.junit.jupiter.api.DisplayNameGeneration;
 import org.junit.jupiter.api.DisplayNameGenerator;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.parser.base.Parser;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
@@ -47,4 +60,153 @@ public class ConsumableTest {
         assertEquals(optionalMatch2.get().matched(), "Test");
         assertEquals(consumable2, new Consumable(""));
     }
+
+    @Test
+    public void Test_lookingAt_mapped_file(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("input.txt");
+        Files.writeString(file, "Grüße \uD83D\uDE00 // comment\n Ende", StandardCharsets.UTF_8);
+        Consumable consumable = Consumable.ofFile(file,
+                Consumable.Ignore.IGNORE_WHITESPACE, Consumable.Ignore.IGNORE_COMMENT);
+
+        Consumable.Mark mark = consumable.mark();
+        assertEquals(consumable.lookingAt("Grüße").map(Consumable.Match::matched), Optional.of("Grüße"));
+        consumable.gotoMark(mark);
+        assertEquals(consumable.lookingAt("\\p{L}+").map(Consumable.Match::matched), Optional.of("Grüße"));
+        assertEquals(consumable.lookingAt("\uD83D\uDE00").map(Consumable.Match::matched), Optional.of("\uD83D\uDE00"));
+        assertEquals(consumable, new Consumable("Ende"));
+        assertEquals(consumable.lookingAt("Ende").map(Consumable.Match::matched), Optional.of("Ende"));
+        assertTrue(consumable.isEmpty());
+    }
+
+    @Test
+    public void Test_lookingAt_block_comment() {
+        Consumable consumable = new Consumable("a /* one\n two */ b /* // */ c // d /* \n e / f /* open",
+                Consumable.Ignore.IGNORE_WHITESPACE, Consumable.Ignore.IGNORE_COMMENT,
+                Consumable.Ignore.IGNORE_BLOCK_COMMENT);
+
+        assertEquals(consumable.lookingAt("\\w").map(Consumable.Match::matched), Optional.of("a"));
+        assertEquals(consumable.lookingAt("\\w").map(Consumable.Match::matched), Optional.of("b"));
+        assertEquals(consumable.lookingAt("\\w").map(Consumable.Match::matched), Optional.of("c"));
+        assertEquals(consumable.lookingAt("\\w").map(Consumable.Match::matched), Optional.of("e"));
+        assertEquals(consumable, new Consumable("/ f /* open"));
+        assertEquals(consumable.lookingAt("/").map(Consumable.Match::matched), Optional.of("/"));
+        assertEquals(consumable.lookingAt("f").map(Consumable.Match::matched), Optional.of("f"));
+        assertEquals(consumable, new Consumable("/* open"));
+    }
+
+    @Test
+    public void Test_skipper_matches_regex() {
+        String input = " \t\u00A0x\r\ny\u2028 // z\u0085w \u000B/**/v//";
+        Consumable.Ignore[][] flagSets = {
+                {Consumable.Ignore.IGNORE_H_SPACE},
+                {Consumable.Ignore.IGNORE_V_SPACE, Consumable.Ignore.IGNORE_H_SPACE},
+                {Consumable.Ignore.IGNORE_LINEBREAK, Consumable.Ignore.IGNORE_COMMENT},
+                {Consumable.Ignore.IGNORE_WHITESPACE, Consumable.Ignore.IGNORE_COMMENT},
+                {Consumable.Ignore.IGNORE_WHITESPACE, Consumable.Ignore.IGNORE_BLOCK_COMMENT},
+        };
+
+        for (Consumable.Ignore[] flags : flagSets) {
+            // a regex that never matches forces the regex path with the same strings to ignore
+            Consumable skipped = new Consumable(input, flags);
+            Consumable matched = new Consumable(input, "(?!)", flags);
+            while (!matched.isEmpty()) {
+                assertFalse(skipped.isEmpty());
+                assertEquals(skipped.toString(), matched.toString());
+                assertEquals(skipped.lookingAt("(?s).").map(Consumable.Match::matched),
+                        matched.lookingAt("(?s).").map(Consumable.Match::matched));
+            }
+            assertTrue(skipped.isEmpty());
+        }
+    }
+
+    @Test
+    public void Test_lookingAtLiteral() {
+        assertEquals(consumable2.lookingAtLiteral("Test").map(Consumable.Match::matched), Optional.of("Test"));
+        assertEquals(consumable2.lookingAtLiteral("Tests"), Optional.empty());
+        assertEquals(consumable2, new Consumable("Test"));
+
+        Optional<Consumable.Match> optionalMatch = consumable2.lookingAtLiteral("Test");
+        assertTrue(optionalMatch.isPresent());
+        assertEquals(optionalMatch.get().start(), 16);
+        assertEquals(optionalMatch.get().end(), 20);
+        assertTrue(consumable2.isEmpty());
+        assertEquals(consumable2.lookingAtLiteral("Test"), Optional.empty());
+    }
+
+    @Test
+    public void Test_match_span() {
+        Optional<Consumable.Match> optionalMatch = consumable1.lookingAt("My (\\w+)");
+        assertTrue(optionalMatch.isPresent());
+        assertEquals(optionalMatch.get().start(), 0);
+        assertEquals(optionalMatch.get().end(), 7);
+        assertEquals(optionalMatch.get(), new Consumable.Match("My name"));
+        assertEquals(optionalMatch.get().matched(), "My name");
+    }
+
+    @Test
+    public void Test_literal_detection() {
+        assertEquals(Parser.hide("\\{").literal(), "{");
+        assertEquals(Parser.hide(":=").literal(), ":=");
+        assertEquals(Parser.keyword(null, "goto").literal(), "goto");
+        assertEquals(Parser.match(null, "\\d+").literal(), null);
+        assertEquals(Parser.match(null, "a|b").literal(), null);
+        assertEquals(Parser.match(null, Pattern.compile("goto", Pattern.CASE_INSENSITIVE)).literal(), null);
+    }
+
+    @Test
+    public void Test_ignore_profile() {
+        IgnoreProfile profile = IgnoreProfile.of(Consumable.Ignore.IGNORE_WHITESPACE, Consumable.Ignore.IGNORE_COMMENT);
+        assertSame(profile, IgnoreProfile.of(Consumable.Ignore.IGNORE_COMMENT, Consumable.Ignore.IGNORE_WHITESPACE));
+        assertSame(IgnoreProfile.of("#.*"), IgnoreProfile.of("#.*"));
+
+        Consumable consumable = new Consumable("Test // hello \n Test", profile);
+        assertEquals(consumable.lookingAt("Test").map(Consumable.Match::matched), Optional.of("Test"));
+        assertEquals(consumable, new Consumable("Test"));
+    }
+
+    @Test
+    public void Test_position() {
+        Consumable consumable = new Consumable("ab\r\ncd\n\nefg", Consumable.Ignore.IGNORE_WHITESPACE);
+        assertEquals(consumable.position(), new Consumable.Position(1, 1));
+        assertEquals(consumable.lookingAt("ab\\s*cd"), Optional.of(new Consumable.Match("ab\r\ncd")));
+        assertEquals(consumable.position(), new Consumable.Position(4, 1));
+        assertEquals(consumable.positionOf(new Consumable.Mark(1)), new Consumable.Position(1, 2));
+        assertEquals(consumable.positionOf(5), new Consumable.Position(2, 2));
+        assertEquals(consumable.positionOf(10), new Consumable.Position(4, 3));
+        assertEquals(consumable.getSequenceLeft(2), "ef");
+        assertEquals(consumable.getSequenceLeft(10), "efg");
+    }
+
+    @Test
+    public void Test_regex_dfa() {
+        // the DFA finds the same match as java.util.regex (first match, not longest match)
+        List<String> regexes = List.of("(\\-)?\\d+(\\.\\d*)?((e|E)(\\+|\\-)?\\d+)?", "[a-zA-Z]\\w*", "\"[^\"]*\"",
+                "a|ab", "(a|ab)(c|bcd)", "a+?b?", "a*?", "x{2,3}y{2}", "(?<sign>[+-])?\\s*.\\D", "[^\\s,]+", "(a|b)*c",
+                "[\\t-\\r]+", "[\\--z]+", "[\\!-\\/]+", "[\\.-9]+", "[a\\d-]+");
+        List<String> inputs = List.of("", "a", "ab", "abcd", "abc", "aab", "xxxxyy", "xxyy", "12.5e-3x", "-7", "1.e",
+                "\"str\" x", "\"open", "name_1 rest", "+ \n1", "- a1", "\u00e4b,c", "ababc", "aaa",
+                "\n\u000B", "0123", "#", "-az", "./", "a1-");
+        for (String regex : regexes) {
+            Pattern pattern = Pattern.compile(regex);
+            RegexDfa dfa = RegexDfa.compile(pattern);
+            assertNotNull(dfa, regex);
+            for (String input : inputs) {
+                Matcher matcher = pattern.matcher(input);
+                int expected = matcher.lookingAt() ? matcher.end() : RegexDfa.NO_MATCH;
+                assertEquals(dfa.lookingAt(input, 0, input.length(), true), expected, regex + " on " + input);
+            }
+        }
+        for (String regex : List.of("^a", "a$", "(?=a)a", "(a)\\1", "a++", "(a*)*", "\\bx", "[a-z&&[^b]]")) {
+            assertNull(RegexDfa.compile(Pattern.compile(regex)), regex);
+        }
+        assertEquals(RegexDfa.compile(Pattern.compile("a.")).lookingAt("a\ud83d\ude00", 0, 3, true), RegexDfa.UNSUPPORTED);
+        assertEquals(RegexDfa.compile(Pattern.compile("\\d+")).lookingAt("12", 0, 2, false), RegexDfa.HIT_END);
+
+        assertNull(RegexDfa.compile(Pattern.compile("[\\d-z]")));
+        assertEquals(Parser.match(null, "[\\!-\\/]+").parse("#").map(ast -> ast.getMatch().matched()), Optional.of("#"));
+
+        // surrogate pairs are matched by the pattern
+        Parser<Object> any = Parser.match(null, "a.");
+        assertEquals(any.parse("a\ud83d\ude00").map(ast -> ast.getMatch().matched()), Optional.of("a\ud83d\ude00"));
+    }
 }
@@ -3,20 +3,34 @@ package org.parser;
 import org.junit.jupiter.api.DisplayNameGeneration;
 import org.junit.jupiter.api.DisplayNameGenerator;
 import org.junit.jupiter.api.Test;
+import org.parser.base.FirstSet;
+import org.parser.base.MemoPolicy;
+import org.parser.base.OrParser;
+import org.parser.base.ParseExecutors;
+import org.parser.base.ParseSession;
 import org.parser.base.Parser;
+import org.parser.base.RegExParser;
 import org.parser.examples.JsonParser;
 import org.parser.examples.JsonParser.TYPE;
 import org.parser.tree.AST;
 
+import java.io.StringReader;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
 public class JsonParserTest {
 
     private static final Parser<TYPE> jsonParser = new JsonParser();
+    private static final Parser<TYPE> compiledJsonParser = JsonParser.jsonExample().compile().getParser("json");
 
     private AST<TYPE> setupASTOfJsonString1() {
         /*
@@ -161,4 +175,144 @@ public class JsonParserTest {
                 """;
         testJson(json, setupASTOfJsonString3());
     }
+
+    @Test
+    public void Test_json_spans() {
+        String json = "{\"name\": \"Fred\", \"tags\": [1, 2]}";
+        var optionalAST = jsonParser.parse(json);
+        assertTrue(optionalAST.isPresent());
+
+        var object = optionalAST.get();
+        assertEquals(json.substring(object.getStart(), object.getEnd()), json);
+        var tags = object.getChild(1);
+        assertEquals(json.substring(tags.getStart(), tags.getEnd()), "\"tags\": [1, 2]");
+        var number = tags.getChild(1).getChild(1);
+        assertEquals(json.substring(number.getStart(), number.getEnd()), "2");
+    }
+
+    @Test
+    public void Test_json_compiled() {
+        String json = "{\"a\": [1, {\"b\": null}, [], \"c\"], \"d\": {\"e\": false}}";
+        var expected = jsonParser.parse(json);
+        var compiled = compiledJsonParser.parse(jsonParser.consumableOf(json));
+        assertTrue(compiled.isPresent());
+        assertEquals(compiled, expected);
+
+        var tags = compiled.get().getChild(0);
+        assertEquals(tags.getStart(), expected.get().getChild(0).getStart());
+        assertEquals(tags.getEnd(), expected.get().getChild(0).getEnd());
+        assertEquals(compiledJsonParser.parse(jsonParser.consumableOf("{\"a\": [1, }")), jsonParser.parse("{\"a\": [1, }"));
+    }
+
+    @Test
+    public void Test_json_memo_policies() {
+        String json = "{\"a\": [1, {\"b\": null}, [[], [2]], \"c\"], \"d\": {\"e\": false}}";
+        var expected = jsonParser.parse(json);
+        assertTrue(expected.isPresent());
+        for (var policy : List.of(MemoPolicy.OFF, MemoPolicy.FULL, MemoPolicy.window(4), MemoPolicy.lru(3))) {
+            assertEquals(jsonParser.parse(jsonParser.consumableOf(json), policy), expected);
+            assertEquals(compiledJsonParser.parse(jsonParser.consumableOf(json), policy), expected);
+        }
+    }
+
+    @Test
+    public void Test_parse_session() {
+        var session = new ParseSession<TYPE>();
+        for (String json : List.of("{\"a\": [1, 2]}", "[true, {}]", "{\"a\": ", "{\"b\": \"c\"}")) {
+            assertEquals(session.parse(jsonParser, jsonParser.consumableOf(json)), jsonParser.parse(json));
+        }
+        session.reset();
+        assertTrue(session.parse(jsonParser, jsonParser.consumableOf("[]")).isPresent());
+    }
+
+    @Test
+    public void Test_nested_parse() {
+        // the atSuccess-method parses the embedded json while the outer parse is running
+        Parser<TYPE> embedded = new RegExParser<>(Pattern.compile("<[^>]*>"), match -> {
+            String json = match.matched();
+            return jsonParser.parse(json.substring(1, json.length() - 1)).orElse(null);
+        });
+        assertEquals(embedded.parse("<{\"a\": [1]}>"), jsonParser.parse("{\"a\": [1]}"));
+    }
+
+    @Test
+    public void Test_parse_all() {
+        List<String> jsons = IntStream.range(0, 200)
+                .mapToObj(i -> i % 7 == 0 ? "{\"n\": " : "{\"n\": " + i + ", \"list\": [" + i + ", \"x\"]}")
+                .toList();
+        var expected = jsons.stream().map(jsonParser::parse).toList();
+
+        assertEquals(jsonParser.parseAll(jsons), expected);
+        var executor = ParseExecutors.virtualThreads();
+        try {
+            assertEquals(jsonParser.parseAll(jsons.stream(), executor), expected);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void Test_built_pool_is_frozen() {
+        var json = (OrParser<TYPE>) JsonParser.jsonExample().getParser("json");
+        assertThrows(IllegalStateException.class, () -> json.addSubparser(Parser.hide("x")));
+        assertThrows(UnsupportedOperationException.class, () -> json.subparsers().add(Parser.hide("x")));
+    }
+
+    @Test
+    public void Test_parse_records() {
+        List<String> records = IntStream.range(0, 5000)
+                .mapToObj(i -> i == 1234 ? "{\"broken\": }" : "{\"id\": " + i + ", \"tags\": [\"a\", " + i + "]}")
+                .toList();
+        String ndjson = records.stream().collect(Collectors.joining("\n", "", "\n\n"));
+        var expected = records.stream().map(jsonParser::parse).toList();
+
+        assertEquals(jsonParser.parseRecords(jsonParser.consumableOf(ndjson), "\n").toList(), expected);
+        assertEquals(jsonParser.parseRecords(jsonParser.consumableOf(ndjson), "\n").parallel().toList(), expected);
+        assertEquals(jsonParser.parseRecords(jsonParser.consumableOf("{} []"), "\n").toList(), List.of(Optional.empty()));
+    }
+
+    @Test
+    public void Test_first_sets() {
+        var number = FirstSet.ofRegex(Pattern.compile("(\\-)?\\d+(\\.\\d*)?((e|E)(\\+|\\-)?\\d+)?"));
+        assertTrue(number.contains('-') && number.contains('7'));
+        assertFalse(number.contains('"') || number.contains('e') || number.containsEmpty());
+        var string = FirstSet.ofRegex(Pattern.compile("\"[^\"]*\""));
+        assertTrue(string.contains('"'));
+        assertFalse(string.contains('a'));
+        assertEquals(FirstSet.ofRegex(Pattern.compile("(?=a)a")), FirstSet.ANY);
+        assertTrue(FirstSet.ofRegex(Pattern.compile("a*")).containsEmpty());
+        var escapedRange = FirstSet.ofRegex(Pattern.compile("[\\.-9]+"));
+        assertTrue(escapedRange.contains('.') && escapedRange.contains('/') && escapedRange.contains('0'));
+        assertFalse(escapedRange.contains('-'));
+        assertTrue(FirstSet.ofRegex(Pattern.compile("[^a]")).contains('\u00e4'));
+
+        // the alternatives that cannot start with the next char are skipped, the order of the others stays
+        var choice = new OrParser<TYPE>(null, List.of(Parser.match(TYPE.STRING, "b"), Parser.match(TYPE.NUMBER, "a"),
+                Parser.match(TYPE.TRUE, "ab"), Parser.match(TYPE.NULL, "\\w*")));
+        choice.setFirstSets(choice.subparsers().stream().map(parser -> ((RegExParser<TYPE>) parser).firstSet()).toList());
+        assertEquals(choice.parse("ab").map(AST::getType), Optional.of(TYPE.NUMBER));
+        assertEquals(choice.parse("c").map(AST::getType), Optional.of(TYPE.NULL));
+
+        var ranges = new OrParser<TYPE>(null, List.of(Parser.match(TYPE.STRING, "[\\!-\\/]+"),
+                Parser.match(TYPE.NUMBER, "[\\.-9]+")));
+        ranges.setFirstSets(ranges.subparsers().stream().map(parser -> ((RegExParser<TYPE>) parser).firstSet()).toList());
+        assertEquals(ranges.parse("#").map(AST::getType), Optional.of(TYPE.STRING));
+        assertEquals(ranges.parse("0").map(AST::getType), Optional.of(TYPE.NUMBER));
+    }
+
+    @Test
+    public void Test_lexer() {
+        var pool = JsonParser.jsonExample();
+        var lexer = pool.lexer();
+        var json = pool.getParser("json");
+        var compiled = pool.compile().getParser("json");
+        for (String input : List.of("{\"a\": [1, {\"b\": null}, [[], [-2.5e3]], \"c\"], \"d\": {\"e\": false}}",
+                "[true, {}]", "{\"a\": ", "{\"a\" 1}", "   ")) {
+            var expected = jsonParser.parse(input);
+            var tokenized = lexer.tokenize(jsonParser.consumableOf(input));
+            assertEquals(json.parse(tokenized), expected);
+            assertEquals(compiled.parse(lexer.tokenize(jsonParser.consumableOf(input))), expected);
+        }
+        assertThrows(IllegalArgumentException.class, () -> lexer.tokenize(new StreamingConsumable(new StringReader("[]"))));
+    }
 }
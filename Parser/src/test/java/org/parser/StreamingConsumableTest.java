@@ -0,0 +1,127 @@
+package org.parser;
+
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.parser.base.Parser;
+import org.parser.base.PushParser;
+import org.parser.base.build.ParserBuilder;
+import org.parser.base.build.ParserPool;
+import org.parser.base.build.Simplerule;
+import org.parser.tree.AST;
+
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+public class StreamingConsumableTest {
+    private enum TYPE {
+        RECORDS, NUMBER
+    }
+
+    private static final Parser<TYPE> recordsParser = recordsExample().getParser("RECORDS");
+    private static final Parser<TYPE> recordParser = recordsExample().getParser("RECORD");
+
+    /**
+     * Grammar: <br>
+     * RECORDS ::= (RECORD)* <br>
+     * RECORD ::= NUMBER ("," NUMBER)* ";" <br>
+     */
+    private static ParserPool<TYPE> recordsExample() {
+        ParserBuilder<TYPE> builder = new ParserBuilder<>();
+        builder.newRule("RECORDS").many(TYPE.RECORDS, "RECORD").end();
+        builder.newRule("RECORD")
+                .rule("NUMBER").many(new Simplerule<TYPE>().hide(",").rule("NUMBER")).hide(";")
+                .end();
+        builder.newRule("NUMBER").match(TYPE.NUMBER, "\\d+").end();
+        return builder.build();
+    }
+
+    private static String records(int n) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            builder.append(i).append(", ").append(i + 1).append(";\n");
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void Test_lookingAt_across_chunks() {
+        var consumable = new StreamingConsumable(new StringReader("abc 12345678 def"), 4,
+                Consumable.Ignore.IGNORE_WHITESPACE);
+
+        assertEquals(consumable.lookingAt("abc").map(Consumable.Match::matched), Optional.of("abc"));
+        assertEquals(consumable.lookingAt("\\d+").map(Consumable.Match::matched), Optional.of("12345678"));
+        assertEquals(consumable.lookingAt("def").map(Consumable.Match::matched), Optional.of("def"));
+        assertTrue(consumable.isEmpty());
+    }
+
+    @Test
+    public void Test_window_stays_small() {
+        String input = records(20000);
+        var consumable = new StreamingConsumable(new StringReader(input), 64, Consumable.Ignore.IGNORE_WHITESPACE);
+
+        Optional<AST<TYPE>> optionalAST = recordsParser.parse(consumable);
+        assertTrue(optionalAST.isPresent());
+        assertEquals(optionalAST.get().numChildren(), 20000);
+        assertEquals(optionalAST.get().getChild(19999).getMatch().matched(), "19999");
+        assertTrue(consumable.isEmpty());
+        assertTrue(consumable.capacity() <= 256, "capacity: " + consumable.capacity());
+        assertTrue(consumable.windowStart() > input.length() - 256);
+        assertEquals(consumable.positionOf(input.length() - 1), new Consumable.Position(20000, 14));
+    }
+
+    @Test
+    public void Test_line_index_stays_small() {
+        String input = records(160000);
+        var consumable = new StreamingConsumable(new StringReader(input), Consumable.Ignore.IGNORE_WHITESPACE);
+
+        Optional<AST<TYPE>> optionalAST = recordsParser.parse(consumable);
+        assertTrue(optionalAST.isPresent());
+        assertEquals(optionalAST.get().numChildren(), 160000);
+        assertTrue(consumable.indexedLines() <= consumable.capacity(), "lines: " + consumable.indexedLines());
+        assertEquals(consumable.positionOf(input.length() - 1), new Consumable.Position(160000, 16));
+        assertTrue(consumable.indexedLines() <= consumable.capacity(), "lines: " + consumable.indexedLines());
+        assertThrows(IllegalStateException.class, () -> consumable.positionOf(0));
+    }
+
+    @Test
+    public void Test_push_parser() {
+        String input = records(200);
+        var parser = new PushParser<>(recordsParser, IgnoreProfile.of(Consumable.Ignore.IGNORE_WHITESPACE));
+
+        CharBuffer chunk = CharBuffer.allocate(7);
+        for (int i = 0; i < input.length(); i += 7) {
+            chunk.clear();
+            chunk.put(input, i, Math.min(i + 7, input.length())).flip();
+            assertEquals(parser.feed(chunk), PushParser.Status.NEED_MORE_INPUT);
+        }
+        assertEquals(parser.finish(), PushParser.Status.SUCCESS);
+        assertTrue(parser.consumable().isEmpty());
+
+        var expected = recordsParser.parse(new Consumable(input, Consumable.Ignore.IGNORE_WHITESPACE));
+        assertEquals(parser.result().map(AST::numChildren), expected.map(AST::numChildren));
+        assertEquals(parser.result().get().getChild(199).getMatch().matched(), "199");
+    }
+
+    @Test
+    public void Test_push_parser_fails_early() {
+        var parser = new PushParser<>(recordParser, IgnoreProfile.of(Consumable.Ignore.IGNORE_WHITESPACE));
+
+        assertEquals(parser.feed("1, 2"), PushParser.Status.NEED_MORE_INPUT);
+        assertEquals(parser.feed(" x"), PushParser.Status.FAILURE);
+        assertTrue(parser.result().isEmpty());
+    }
+
+    @Test
+    public void Test_push_parser_rejects_compiled_parsers() {
+        var compiled = recordsExample().compile().getParser("RECORDS");
+        assertThrows(IllegalArgumentException.class,
+                () -> new PushParser<>(compiled, IgnoreProfile.of(Consumable.Ignore.IGNORE_WHITESPACE)));
+    }
+}